@@ -0,0 +1,297 @@
+package com.example.tools;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end and per-phase benchmarks on a generated project. The project is
+ * generated once per shape under java.io.tmpdir and reused by later runs.
+ * Sizes sweep from 1000 to 100000 classes; {@code -p classes=10000} runs one.
+ *
+ * <ul>
+ * <li>discovery: traversal plus the lexical declaration scan</li>
+ * <li>scanDeclarations: the lexical declaration scan alone, over the discovered files</li>
+ * <li>parseDeclarations: the same files through the full parser, collecting type declarations</li>
+ * <li>resolution: TypeIndex construction and resolving every reference</li>
+ * <li>extraction: parsing references, resolving them and building the CSR graph</li>
+ * <li>cascade: the deletion fixpoint for the generated targets</li>
+ * <li>fullRun: analyzeAndDeleteClasses on a fresh hard-linked copy of the tree</li>
+ * <li>fullRunSymbolSolving: the same with references resolved by the symbol solver</li>
+ * <li>fullRunSharded: the same with files parsed in {@code shards} worker JVMs</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class AnalyzerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    @Param({"8"})
+    public int modules;
+
+    @Param({"4"})
+    public int fanOut;
+
+    @Param({"0.01"})
+    public double cycleDensity;
+
+    @Param({"5"})
+    public int cascadeDepth;
+
+    @Param({"10"})
+    public int targets;
+
+    @Param({"4"})
+    public int shards;
+
+    private final JavaParser parser = new JavaParser(new ParserConfiguration()
+        .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
+        .setAttributeComments(false)
+        .setLexicalPreservationEnabled(false)
+        .setStoreTokens(false));
+
+    private Path project;
+    private ForkJoinPool pool;
+    private List<FileSummary> summaries;
+    private ClassGraph graph;
+    private BitSet targetIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ProjectGenerator.Shape shape = new ProjectGenerator.Shape(
+            classes, modules, fanOut, cycleDensity, cascadeDepth, targets, 42);
+        project = ProjectGenerator.generate(Paths.get(System.getProperty("java.io.tmpdir"),
+            "class-deleter-bench", shape.toString().replace(' ', '_')), shape);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        summaries = new ArrayList<>();
+        for (FileSummary declarations : discover()) {
+            summaries.add(ClassDependencyAnalyzer.summarize(declarations.getPath(), Files.readAllBytes(declarations.getPath())));
+        }
+        graph = buildGraph(summaries);
+        targetIds = new BitSet(graph.size());
+        for (String target : ProjectGenerator.readTargets(project)) {
+            targetIds.set(graph.id(target));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int discovery() {
+        return discover().size();
+    }
+
+    @Benchmark
+    public void scanDeclarations(Blackhole blackhole) throws IOException {
+        for (FileSummary summary : summaries) {
+            blackhole.consume(DeclarationScanner.scan(summary.getPath()));
+        }
+    }
+
+    @Benchmark
+    public void parseDeclarations(Blackhole blackhole) throws IOException {
+        for (FileSummary summary : summaries) {
+            CompilationUnit cu = parser.parse(summary.getPath()).getResult().orElse(null);
+            if (cu != null) {
+                blackhole.consume(cu.findAll(TypeDeclaration.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public int resolution() {
+        Set<String> names = new HashSet<>();
+        for (FileSummary summary : summaries) {
+            for (String className : summary.getDeclaredTypes()) {
+                names.add(className);
+            }
+        }
+        TypeIndex index = new TypeIndex(names);
+        int resolved = 0;
+        for (FileSummary summary : summaries) {
+            TypeIndex.Scope scope = index.scopeOf(summary);
+            for (String typeName : summary.getReferencedTypes()) {
+                if (scope.resolve(typeName) != null) {
+                    resolved++;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    @Benchmark
+    public ClassGraph extraction() throws IOException {
+        List<FileSummary> parsed = new ArrayList<>(summaries.size());
+        for (FileSummary summary : summaries) {
+            parsed.add(ClassDependencyAnalyzer.summarize(summary.getPath(), Files.readAllBytes(summary.getPath())));
+        }
+        return buildGraph(parsed);
+    }
+
+    @Benchmark
+    public int cascade() {
+        return DeletionCascade.run(graph, targetIds).count();
+    }
+
+    @State(Scope.Thread)
+    public static class Copy {
+        Path root;
+        Path output;
+
+        // Hard links make a fresh tree cheap; deleting a file only removes the link
+        @Setup(Level.Invocation)
+        public void link(AnalyzerBenchmark benchmark) throws IOException {
+            root = Files.createTempDirectory("class-deleter-run");
+            output = Files.createTempDirectory("class-deleter-out");
+            Path source = benchmark.project;
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(root.resolve(source.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.createLink(root.resolve(source.relativize(file).toString()), file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            deleteTree(root);
+            deleteTree(output);
+        }
+    }
+
+    @Benchmark
+    public void fullRun(Copy copy) throws IOException {
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(copy.output)) {
+            analyzer.setCacheFile(null);
+            analyzer.analyzeAndDeleteClasses(copy.root.toString(), new HashSet<>(ProjectGenerator.readTargets(copy.root)));
+        }
+    }
+
+    @Benchmark
+    public void fullRunSymbolSolving(Copy copy) throws IOException {
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(copy.output)) {
+            analyzer.setCacheFile(null);
+            analyzer.setSymbolSolving(true);
+            analyzer.analyzeAndDeleteClasses(copy.root.toString(), new HashSet<>(ProjectGenerator.readTargets(copy.root)));
+        }
+    }
+
+    @Benchmark
+    public void fullRunSharded(Copy copy) throws IOException {
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(copy.output)) {
+            analyzer.setCacheFile(null);
+            analyzer.setShards(shards);
+            analyzer.analyzeAndDeleteClasses(copy.root.toString(), new HashSet<>(ProjectGenerator.readTargets(copy.root)));
+        }
+    }
+
+    private List<FileSummary> discover() {
+        ConcurrentLinkedQueue<FileSummary> found = new ConcurrentLinkedQueue<>();
+        try {
+            new SourceWalker(pool, SourceWalker.DEFAULT_EXCLUDES).walk(project, ".java", path -> {
+                try {
+                    FileSummary summary = DeclarationScanner.scan(path);
+                    if (summary != null) {
+                        found.add(summary);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(found);
+    }
+
+    private static ClassGraph buildGraph(List<FileSummary> parsed) {
+        Set<String> names = new HashSet<>();
+        for (FileSummary summary : parsed) {
+            for (String className : summary.getDeclaredTypes()) {
+                names.add(className);
+            }
+        }
+        TypeIndex index = new TypeIndex(names);
+        String[] sorted = ClassGraph.sortedNames(names);
+        int[][] adjacency = new int[sorted.length][];
+        for (FileSummary summary : parsed) {
+            if (summary.getPrimaryType() == null) {
+                continue;
+            }
+            TypeIndex.Scope scope = index.scopeOf(summary);
+            BitSet dependencies = new BitSet();
+            for (String typeName : summary.getReferencedTypes()) {
+                String dependency = scope.resolve(typeName);
+                if (dependency != null) {
+                    dependencies.set(ClassGraph.indexOf(sorted, dependency));
+                }
+            }
+            adjacency[ClassGraph.indexOf(sorted, summary.getPrimaryType())] = dependencies.stream().toArray();
+        }
+        return ClassGraph.build(sorted, adjacency);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.tools;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Retained heap of the dependency graph: the CSR {@link ClassGraph} against
+ * the name-keyed map of sets it replaced. JMH measures time and allocation
+ * but not retained size, so this is a plain main that prints one JSON line
+ * per graph size.
+ *
+ * <pre>java -Xmx16g -cp benchmarks.jar com.example.tools.GraphFootprint 100000 1000000</pre>
+ */
+final class GraphFootprint {
+    private static final int FAN_OUT = 6;
+
+    public static void main(String[] args) {
+        String[] sizes = args.length > 0 ? args : new String[] {"100000", "1000000"};
+        for (String size : sizes) {
+            measure(Integer.parseInt(size));
+        }
+    }
+
+    private static void measure(int classes) {
+        String[] names = new String[classes];
+        for (int i = 0; i < classes; i++) {
+            names[i] = "gen.m" + (i % 16) + ".p" + (i / 100) + ".C" + i;
+        }
+        Random random = new Random(42);
+        int[][] adjacency = new int[classes][];
+        for (int i = 0; i < classes; i++) {
+            adjacency[i] = random.ints(FAN_OUT, 0, classes).distinct().sorted().toArray();
+        }
+        String[] sorted = ClassGraph.sortedNames(Arrays.asList(names));
+
+        // Names are shared by both representations and counted in the baseline
+        long baseline = usedHeap();
+        Map<String, Set<String>> forward = new HashMap<>();
+        Map<String, Set<String>> reverse = new HashMap<>();
+        for (int i = 0; i < classes; i++) {
+            Set<String> dependencies = forward.computeIfAbsent(names[i], k -> new HashSet<>());
+            for (int dependency : adjacency[i]) {
+                dependencies.add(names[dependency]);
+                reverse.computeIfAbsent(names[dependency], k -> new HashSet<>()).add(names[i]);
+            }
+        }
+        long mapBytes = usedHeap() - baseline;
+        int mapEntries = forward.size() + reverse.size();
+        forward = null;
+        reverse = null;
+
+        baseline = usedHeap();
+        int[][] sortedAdjacency = new int[classes][];
+        for (int i = 0; i < classes; i++) {
+            int id = ClassGraph.indexOf(sorted, names[i]);
+            int[] dependencies = new int[adjacency[i].length];
+            for (int d = 0; d < dependencies.length; d++) {
+                dependencies[d] = ClassGraph.indexOf(sorted, names[adjacency[i][d]]);
+            }
+            sortedAdjacency[id] = dependencies;
+        }
+        ClassGraph graph = ClassGraph.build(sorted, sortedAdjacency);
+        sortedAdjacency = null;
+        long csrBytes = usedHeap() - baseline;
+
+        System.out.printf("{\"classes\": %d, \"edges\": %d, \"mapBytes\": %d, \"mapEntries\": %d, \"csrBytes\": %d}%n",
+            classes, graph.edgeCount(), mapBytes, mapEntries, csrBytes);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
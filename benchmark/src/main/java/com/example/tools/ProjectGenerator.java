@@ -0,0 +1,262 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes a synthetic multi-module Maven project laid out like TestProject:
+ * a parent pom, moduleN directories that depend on the next module, and one
+ * class per file. The same shape and seed always produce the same tree.
+ *
+ * <p>Regular classes only reference classes with a higher number, so the
+ * graph is a DAG apart from the back edges added for cycle density. Each
+ * target heads a chain of cascadeDepth classes that are used by nothing
+ * else, so deleting the targets cascades exactly that deep; chain classes
+ * also reference regular classes, which have other users and are kept.
+ * The target names are written to targets.txt.
+ *
+ * <pre>java -cp benchmarks.jar com.example.tools.ProjectGenerator out 100000 [modules fanOut cycleDensity cascadeDepth targets seed]</pre>
+ */
+final class ProjectGenerator {
+    static final String TARGETS_FILE = "targets.txt";
+    private static final String MARKER_FILE = ".generated";
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    static final class Shape {
+        final int classes;
+        final int modules;
+        final int fanOut;
+        final double cycleDensity;
+        final int cascadeDepth;
+        final int targets;
+        final long seed;
+
+        Shape(int classes, int modules, int fanOut, double cycleDensity, int cascadeDepth, int targets, long seed) {
+            if (targets * (cascadeDepth + 1) >= classes) {
+                throw new IllegalArgumentException("Cascade chains do not fit into " + classes + " classes");
+            }
+            this.classes = classes;
+            this.modules = modules;
+            this.fanOut = fanOut;
+            this.cycleDensity = cycleDensity;
+            this.cascadeDepth = cascadeDepth;
+            this.targets = targets;
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            return "classes=" + classes + " modules=" + modules + " fanOut=" + fanOut + " cycleDensity=" + cycleDensity
+                + " cascadeDepth=" + cascadeDepth + " targets=" + targets + " seed=" + seed;
+        }
+    }
+
+    private final Path root;
+    private final Shape shape;
+    private final Random random;
+    private final int regular;
+    private final Set<Path> createdDirectories = new LinkedHashSet<>();
+
+    private ProjectGenerator(Path root, Shape shape) {
+        this.root = root;
+        this.shape = shape;
+        this.random = new Random(shape.seed);
+        this.regular = shape.classes - shape.targets * (shape.cascadeDepth + 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ProjectGenerator <output dir> <classes> [modules fanOut cycleDensity cascadeDepth targets seed]");
+            System.exit(1);
+        }
+        Shape shape = new Shape(Integer.parseInt(args[1]),
+            args.length > 2 ? Integer.parseInt(args[2]) : 8,
+            args.length > 3 ? Integer.parseInt(args[3]) : 4,
+            args.length > 4 ? Double.parseDouble(args[4]) : 0.01,
+            args.length > 5 ? Integer.parseInt(args[5]) : 5,
+            args.length > 6 ? Integer.parseInt(args[6]) : 10,
+            args.length > 7 ? Long.parseLong(args[7]) : 42);
+        long start = System.nanoTime();
+        generate(Paths.get(args[0]), shape);
+        System.out.printf("Generated %s in %d ms%n", shape, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /*
+     * Generates the project into root, or reuses it if a previous run left
+     * the same shape there. Returns root.
+     */
+    static Path generate(Path root, Shape shape) throws IOException {
+        Path marker = root.resolve(MARKER_FILE);
+        if (Files.isRegularFile(marker) && new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).equals(shape.toString())) {
+            return root;
+        }
+        if (Files.exists(root)) {
+            throw new IOException(root + " exists and was not generated with " + shape);
+        }
+        new ProjectGenerator(root, shape).write();
+        Files.write(marker, shape.toString().getBytes(StandardCharsets.UTF_8));
+        return root;
+    }
+
+    static List<String> readTargets(Path root) throws IOException {
+        return Files.readAllLines(root.resolve(TARGETS_FILE), StandardCharsets.UTF_8);
+    }
+
+    private void write() throws IOException {
+        Files.createDirectories(root);
+        writePoms();
+
+        for (int index = 0; index < regular; index++) {
+            Set<String> dependencies = new LinkedHashSet<>();
+            int remaining = regular - index - 1;
+            for (int i = 0; i < shape.fanOut && remaining > 0; i++) {
+                dependencies.add(regularName(index + 1 + random.nextInt(remaining)));
+            }
+            // Back edge within the module closes a cycle
+            int moduleStart = moduleStart(moduleOf(index));
+            if (index > moduleStart && random.nextDouble() < shape.cycleDensity) {
+                dependencies.add(regularName(moduleStart + random.nextInt(index - moduleStart)));
+            }
+            writeClass(moduleOf(index), regularName(index), dependencies);
+        }
+
+        List<String> targets = new ArrayList<>();
+        for (int t = 0; t < shape.targets; t++) {
+            for (int depth = shape.cascadeDepth; depth >= 0; depth--) {
+                Set<String> dependencies = new LinkedHashSet<>();
+                if (depth < shape.cascadeDepth) {
+                    dependencies.add(chainName(t, depth + 1));
+                }
+                // Only modules this one depends on are visible to it
+                int module = chainModule(depth);
+                int visibleStart = moduleStart(module);
+                for (int i = 0; i < Math.min(2, shape.fanOut); i++) {
+                    dependencies.add(regularName(visibleStart + random.nextInt(regular - visibleStart)));
+                }
+                writeClass(module, chainName(t, depth), dependencies);
+            }
+            targets.add(chainName(t, 0));
+        }
+        Files.write(root.resolve(TARGETS_FILE), targets, StandardCharsets.UTF_8);
+
+        List<String> mainUses = new ArrayList<>();
+        for (int i = 0; i < Math.min(10, regular); i++) {
+            mainUses.add(regularName(i));
+        }
+        writeClass(-1, "gen.Main", mainUses);
+    }
+
+    private int moduleOf(int index) {
+        return (int) ((long) index * shape.modules / regular);
+    }
+
+    private int moduleStart(int module) {
+        return (int) (((long) module * regular + shape.modules - 1) / shape.modules);
+    }
+
+    private String regularName(int index) {
+        return "gen.m" + moduleOf(index) + ".p" + (index / CLASSES_PER_PACKAGE) + ".C" + index;
+    }
+
+    // Chains run from module0 towards the last module, like module dependencies
+    private int chainModule(int depth) {
+        return Math.min(shape.modules - 1, depth * shape.modules / (shape.cascadeDepth + 1));
+    }
+
+    // Depth 0 is the target itself
+    private String chainName(int target, int depth) {
+        return "gen.m" + chainModule(depth) + ".chain." + (depth == 0 ? "Target" + target : "Chain" + target + "_" + depth);
+    }
+
+    // Mixes imports, generic arguments and qualified names so resolution sees every form
+    private void writeClass(int module, String className, Iterable<String> dependencies) throws IOException {
+        int dot = className.lastIndexOf('.');
+        String packageName = className.substring(0, dot);
+        String simpleName = className.substring(dot + 1);
+
+        StringBuilder imports = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        int field = 0;
+        for (String dependency : dependencies) {
+            int split = dependency.lastIndexOf('.');
+            String dependencyPackage = dependency.substring(0, split);
+            String dependencySimple = dependency.substring(split + 1);
+            boolean samePackage = dependencyPackage.equals(packageName);
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (!samePackage) {
+                        imports.append("import ").append(dependency).append(";\n");
+                    }
+                    fields.append("    private ").append(dependencySimple).append(" f").append(field++).append(";\n");
+                    break;
+                case 1:
+                    if (!samePackage) {
+                        imports.append("import ").append(dependency).append(";\n");
+                    }
+                    fields.append("    private java.util.List<").append(dependencySimple).append("> f").append(field++).append(";\n");
+                    break;
+                default:
+                    body.append("        new ").append(dependency).append("();\n");
+                    break;
+            }
+        }
+
+        StringBuilder source = new StringBuilder(256);
+        source.append("package ").append(packageName).append(";\n\n");
+        if (imports.length() > 0) {
+            source.append(imports).append('\n');
+        }
+        source.append("public class ").append(simpleName).append(" {\n").append(fields);
+        source.append("\n    public void run() {\n").append(body).append("    }\n}\n");
+
+        Path directory = root.resolve(module < 0 ? "src/main/java" : "module" + module + "/src/main/java")
+            .resolve(packageName.replace('.', '/'));
+        if (createdDirectories.add(directory)) {
+            Files.createDirectories(directory);
+        }
+        try (Writer out = Files.newBufferedWriter(directory.resolve(simpleName + ".java"), StandardCharsets.UTF_8)) {
+            out.write(source.toString());
+        }
+    }
+
+    private void writePoms() throws IOException {
+        StringBuilder modules = new StringBuilder();
+        for (int m = 0; m < shape.modules; m++) {
+            modules.append("        <module>module").append(m).append("</module>\n");
+        }
+        writePom(root, "    <groupId>gen</groupId>\n    <artifactId>generated</artifactId>\n"
+            + "    <version>1.0-SNAPSHOT</version>\n    <packaging>pom</packaging>\n"
+            + "    <modules>\n" + modules + "    </modules>\n");
+        for (int m = 0; m < shape.modules; m++) {
+            String dependency = m + 1 < shape.modules
+                ? "    <dependencies>\n        <dependency>\n            <groupId>gen</groupId>\n"
+                    + "            <artifactId>module" + (m + 1) + "</artifactId>\n"
+                    + "            <version>1.0-SNAPSHOT</version>\n        </dependency>\n    </dependencies>\n"
+                : "";
+            Path moduleRoot = root.resolve("module" + m);
+            Files.createDirectories(moduleRoot);
+            writePom(moduleRoot, "    <parent>\n        <groupId>gen</groupId>\n        <artifactId>generated</artifactId>\n"
+                + "        <version>1.0-SNAPSHOT</version>\n    </parent>\n\n"
+                + "    <artifactId>module" + m + "</artifactId>\n" + dependency);
+        }
+    }
+
+    private static void writePom(Path directory, String content) throws IOException {
+        String pom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "    <modelVersion>4.0.0</modelVersion>\n"
+            + content
+            + "</project>\n";
+        Files.write(directory.resolve("pom.xml"), pom.getBytes(StandardCharsets.UTF_8));
+    }
+}
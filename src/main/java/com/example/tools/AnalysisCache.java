@@ -0,0 +1,230 @@
+package com.example.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of {@link FileSummary} per source file, keyed by path and
+ * validated by mtime/size first and content hash second. Only files that
+ * miss have to be parsed again.
+ *
+ * <p>By default each analyzed root gets its own file in the user cache
+ * directory, so the analyzed tree is never written to.
+ */
+final class AnalysisCache {
+    private static final int MAGIC = 0x43444331; // "CDC1"
+    // Bump whenever summary extraction changes so stale caches are dropped
+    private static final int FORMAT_VERSION = 3;
+
+    private final Path cacheFile;
+    private final Map<String, Entry> previous = new ConcurrentHashMap<>();
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger added = new AtomicInteger();
+
+    private static final class Entry {
+        final long lastModified;
+        final long size;
+        final byte[] hash;
+        final FileSummary summary;
+
+        Entry(long lastModified, long size, byte[] hash, FileSummary summary) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+            this.summary = summary;
+        }
+    }
+
+    AnalysisCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    // $XDG_CACHE_HOME/class-deleter, or ~/.cache/class-deleter, named after a hash of the root
+    static Path defaultFile(Path root) {
+        String base = System.getenv("XDG_CACHE_HOME");
+        Path directory = base != null && !base.isEmpty()
+            ? Paths.get(base) : Paths.get(System.getProperty("user.home"), ".cache");
+        byte[] digest = hash(root.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            name.append(String.format("%02x", digest[i]));
+        }
+        return directory.resolve("class-deleter").resolve(name.append(".cache").toString());
+    }
+
+    // A missing, unreadable or outdated cache file just means a cold run
+    boolean load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long lastModified = in.readLong();
+                long size = in.readLong();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                FileSummary summary = readSummary(in, Paths.get(path));
+                previous.put(path, new Entry(lastModified, size, hash, summary));
+            }
+            return true;
+        } catch (IOException e) {
+            previous.clear();
+            return false;
+        }
+    }
+
+    /*
+     * Returns the cached summary if the file is unchanged, otherwise null. On a
+     * miss the file's key is remembered so store() can fill in the summary
+     * once it has been computed.
+     */
+    FileSummary lookup(Path file) throws IOException {
+        String key = file.toString();
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        long size = attrs.size();
+
+        Entry cached = previous.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.size == size) {
+            current.put(key, cached);
+            hits.incrementAndGet();
+            return cached.summary;
+        }
+
+        byte[] hash = hash(Files.readAllBytes(file));
+        if (cached != null && Arrays.equals(cached.hash, hash)) {
+            // Touched but not modified
+            current.put(key, new Entry(lastModified, size, hash, cached.summary));
+            hits.incrementAndGet();
+            return cached.summary;
+        }
+
+        current.put(key, new Entry(lastModified, size, hash, null));
+        (cached != null ? changed : added).incrementAndGet();
+        return null;
+    }
+
+    // Only complete summaries (with referenced types) are worth caching
+    void store(FileSummary summary) {
+        current.computeIfPresent(summary.getPath().toString(), (key, entry) ->
+            new Entry(entry.lastModified, entry.size, entry.hash, summary));
+    }
+
+    void save() throws IOException {
+        if (cacheFile.getParent() != null) {
+            Files.createDirectories(cacheFile.getParent());
+        }
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            int complete = 0;
+            for (Entry entry : current.values()) {
+                if (entry.summary != null && entry.summary.getReferencedTypes() != null) {
+                    complete++;
+                }
+            }
+            out.writeInt(complete);
+            for (Map.Entry<String, Entry> e : current.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.summary == null || entry.summary.getReferencedTypes() == null) {
+                    continue;
+                }
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.size);
+                out.writeByte(entry.hash.length);
+                out.write(entry.hash);
+                writeSummary(out, entry.summary);
+            }
+        }
+        try {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    String report() {
+        int removed = 0;
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                removed++;
+            }
+        }
+        return String.format("Cache: %d hits, %d changed, %d added, %d removed",
+            hits.get(), changed.get(), added.get(), removed);
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeSummary(DataOutputStream out, FileSummary summary) throws IOException {
+        out.writeUTF(summary.getPackageName());
+        writeStrings(out, summary.getImports());
+        writeStrings(out, summary.getDeclaredTypes());
+        out.writeBoolean(summary.getPrimaryType() != null);
+        if (summary.getPrimaryType() != null) {
+            out.writeUTF(summary.getPrimaryType());
+        }
+        writeStrings(out, summary.getReferencedTypes());
+        writeStrings(out, summary.getAnnotations());
+        out.writeBoolean(summary.hasMainMethod());
+    }
+
+    static FileSummary readSummary(DataInputStream in, Path path) throws IOException {
+        String packageName = in.readUTF();
+        String[] imports = readStrings(in);
+        String[] declaredTypes = readStrings(in);
+        String primaryType = in.readBoolean() ? in.readUTF() : null;
+        String[] referencedTypes = readStrings(in);
+        String[] annotations = readStrings(in);
+        boolean mainMethod = in.readBoolean();
+        return new FileSummary(path, packageName, imports, declaredTypes, primaryType,
+            referencedTypes, annotations, mainMethod);
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+}
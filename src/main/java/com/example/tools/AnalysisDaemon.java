@@ -0,0 +1,434 @@
+package com.example.tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Resident analyzer that builds the graph once and keeps it current from
+ * file system events. Touched files are re-parsed; if their declarations
+ * are unchanged only their own edges are re-resolved, otherwise every file
+ * is re-resolved from the summaries in memory. Either way no other file is
+ * parsed again. Each update publishes a new immutable snapshot, so queries
+ * never wait for an update and never see a half-patched graph.
+ *
+ * <p>Line protocol, over stdin/stdout or a loopback socket:
+ * <pre>
+ * QUERY a.b.C d.e.F   -&gt; OK n, n lines "class TAB path", UNKNOWN lines, END
+ * STATUS              -&gt; OK classes=.. edges=.. files=.. version=..
+ * SHUTDOWN            -&gt; OK, then the daemon stops
+ * </pre>
+ */
+final class AnalysisDaemon implements AutoCloseable {
+    // Editors write files in several steps; wait for a quiet period before updating
+    private static final long SETTLE_MILLIS = 200;
+
+    private static final class Snapshot {
+        final AnalysisSnapshot analysis;
+        final long version;
+
+        Snapshot(AnalysisSnapshot analysis, long version) {
+            this.analysis = analysis;
+            this.version = version;
+        }
+    }
+
+    private final Path root;
+    private final List<String> excludePatterns;
+    private final Path outputDirectory;
+    private Path cacheFile;
+    private boolean cacheEnabled = true;
+    private final SourceWalker excludes;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private volatile Snapshot snapshot;
+    private volatile boolean running = true;
+    private Thread updater;
+    private ServerSocket serverSocket;
+
+    // Owned by the update thread
+    private final Map<Path, FileSummary> files = new HashMap<>();
+    private TypeIndex typeIndex;
+    private String[] names;
+    private int[][] adjacency;
+
+    AnalysisDaemon(Path root, List<String> excludePatterns) throws IOException {
+        this(root, excludePatterns, Paths.get(""));
+    }
+
+    // The log of each full build goes into the given directory
+    AnalysisDaemon(Path root, List<String> excludePatterns, Path outputDirectory) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.excludePatterns = excludePatterns;
+        this.outputDirectory = outputDirectory;
+        this.excludes = new SourceWalker(null, excludePatterns); // only used for matching
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    // As for the analyzer: null disables the cache, the default is per root
+    void setCacheFile(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.cacheEnabled = cacheFile != null;
+    }
+
+    /*
+     * Registers the watches before the initial build so that edits made
+     * while it runs are picked up by the first update.
+     */
+    void start() throws IOException {
+        register(root);
+        rebuild();
+        updater = new Thread(this::watchLoop, "class-deleter-watch");
+        updater.setDaemon(true);
+        updater.start();
+    }
+
+    // Called by the update thread, or directly before it is started
+    void rebuild() throws IOException {
+        long start = System.nanoTime();
+        files.clear();
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(outputDirectory)) {
+            analyzer.setExcludePatterns(excludePatterns);
+            if (cacheFile != null || !cacheEnabled) {
+                analyzer.setCacheFile(cacheFile);
+            }
+            analyzer.setProfileFile(null);
+            analyzer.buildGraph(root.toString());
+            for (FileSummary summary : analyzer.getSummaries()) {
+                files.put(summary.getPath(), summary);
+            }
+        }
+        resolveAll();
+        status("Built graph in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void register(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (excludes.isExcluded(root, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                synchronized (watchedDirectories) {
+                    watchedDirectories.put(key, dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                WatchKey key = watcher.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                // Collect events until the tree has been quiet for a moment
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow) {
+                    status("Event queue overflowed, rebuilding");
+                    rebuild();
+                } else if (!changed.isEmpty()) {
+                    update(changed);
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                status("Update failed: " + e);
+            }
+        }
+    }
+
+    private boolean collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path directory;
+        synchronized (watchedDirectories) {
+            directory = watchedDirectories.get(key);
+        }
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context()).normalize();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // Files created before the watch was registered only show up in the walk
+                register(path);
+                try (Stream<Path> created = Files.walk(path)) {
+                    created.filter(p -> p.toString().endsWith(".java")).forEach(changed::add);
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && !path.toString().endsWith(".java")) {
+                // A removed directory takes its files with it
+                for (Path file : files.keySet()) {
+                    if (file.startsWith(path)) {
+                        changed.add(file);
+                    }
+                }
+            } else if (path.toString().endsWith(".java")) {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            synchronized (watchedDirectories) {
+                watchedDirectories.remove(key);
+            }
+        }
+        return overflow;
+    }
+
+    // Called by the update thread, or directly when it is not started
+    void update(Set<Path> changed) {
+        long start = System.nanoTime();
+        boolean declarationsChanged = false;
+        Set<Path> reresolve = new LinkedHashSet<>();
+        for (Path path : changed) {
+            FileSummary previous = files.get(path);
+            FileSummary current = null;
+            if (Files.isRegularFile(path)) {
+                try {
+                    // Same summary as the initial build, so a rejected file keeps its declarations
+                    current = ClassDependencyAnalyzer.summarizeComplete(path);
+                } catch (IOException e) {
+                    status("Could not read " + path + ": " + e.getMessage());
+                }
+                if (current == null) {
+                    // Usually a half-written edit; keep the last good version
+                    continue;
+                }
+                files.put(path, current);
+            } else if (previous != null) {
+                files.remove(path);
+            } else {
+                continue;
+            }
+            if (previous == null || current == null
+                    || !Arrays.equals(previous.getDeclaredTypes(), current.getDeclaredTypes())
+                    || !Objects.equals(previous.getPrimaryType(), current.getPrimaryType())) {
+                declarationsChanged = true;
+            } else {
+                reresolve.add(path);
+            }
+        }
+
+        if (declarationsChanged) {
+            resolveAll();
+        } else if (!reresolve.isEmpty()) {
+            // Copy-on-write: readers keep the previous rows and graph
+            int[][] patched = adjacency.clone();
+            for (Path path : reresolve) {
+                FileSummary summary = files.get(path);
+                if (summary.getPrimaryType() != null) {
+                    patched[ClassGraph.indexOf(names, summary.getPrimaryType())] =
+                        ClassDependencyAnalyzer.resolve(typeIndex, names, summary);
+                }
+            }
+            adjacency = patched;
+            publish();
+        } else {
+            return;
+        }
+        status(String.format("Updated %d files (%s) in %d ms", changed.size(),
+            declarationsChanged ? "declarations changed" : "edges only", (System.nanoTime() - start) / 1_000_000));
+    }
+
+    // Re-resolves every file against a fresh index; no file is parsed
+    private void resolveAll() {
+        Set<String> declared = new LinkedHashSet<>();
+        for (FileSummary summary : files.values()) {
+            declared.addAll(Arrays.asList(summary.getDeclaredTypes()));
+        }
+        typeIndex = new TypeIndex(declared);
+        names = ClassGraph.sortedNames(declared);
+        adjacency = new int[names.length][];
+        for (FileSummary summary : files.values()) {
+            if (summary.getPrimaryType() != null) {
+                adjacency[ClassGraph.indexOf(names, summary.getPrimaryType())] =
+                    ClassDependencyAnalyzer.resolve(typeIndex, names, summary);
+            }
+        }
+        publish();
+    }
+
+    private void publish() {
+        Path[] paths = new Path[names.length];
+        for (FileSummary summary : files.values()) {
+            for (String className : summary.getDeclaredTypes()) {
+                paths[ClassGraph.indexOf(names, className)] = summary.getPath();
+            }
+        }
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(new AnalysisSnapshot(ClassGraph.build(names, adjacency), paths, files.values()),
+            previous == null ? 1 : previous.version + 1);
+    }
+
+    /*
+     * Answers one protocol line. Returns false once the client asked the
+     * daemon to shut down.
+     */
+    boolean handle(String line, Writer out) throws IOException {
+        String[] words = line.trim().split("\\s+");
+        String command = words[0].toUpperCase();
+        Snapshot current = snapshot;
+        switch (command) {
+            case "QUERY": {
+                DeletionPlan plan = current.analysis.query(
+                    new LinkedHashSet<>(Arrays.asList(words).subList(1, words.length)));
+                StringBuilder result = new StringBuilder();
+                for (Map.Entry<String, Path> entry : plan.getDeletableClasses().entrySet()) {
+                    result.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+                }
+                for (String className : plan.getUnknownTargets()) {
+                    result.append("UNKNOWN ").append(className).append('\n');
+                }
+                int count = plan.getDeletableClasses().size();
+                out.write("OK " + count + "\n" + result + "END\n");
+                break;
+            }
+            case "STATUS":
+                out.write(String.format("OK classes=%d edges=%d files=%d version=%d%n",
+                    current.analysis.getClassCount(), current.analysis.getEdgeCount(),
+                    current.analysis.getFileCount(), current.version));
+                break;
+            case "SHUTDOWN":
+                out.write("OK\n");
+                out.flush();
+                return false;
+            case "":
+                return true;
+            default:
+                out.write("ERROR unknown command " + words[0] + "\n");
+                break;
+        }
+        out.flush();
+        return true;
+    }
+
+    void serveStdin() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null && handle(line, out)) {
+            // next command
+        }
+    }
+
+    // Loopback only: the protocol has no authentication
+    void serveSocket(int port) throws IOException {
+        ExecutorService connections = Executors.newCachedThreadPool();
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        status("Listening on " + serverSocket.getLocalSocketAddress());
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (!running) {
+                        break;
+                    }
+                    throw e;
+                }
+                connections.submit(() -> serveConnection(socket));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!handle(line, out)) {
+                    close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            status("Connection failed: " + e.getMessage());
+        }
+    }
+
+    private static void status(String message) {
+        System.err.println("[class-deleter] " + message);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watcher.close();
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            status("Could not stop cleanly: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Sends one QUERY to a running daemon and returns the class name and
+     * path lines; classes the daemon does not know are reported on stderr.
+     */
+    static Map<String, Path> query(int port, Set<String> targets) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            out.write("QUERY " + String.join(" ", targets) + "\n");
+            out.flush();
+            String header = in.readLine();
+            if (header == null || !header.startsWith("OK ")) {
+                throw new IOException("Unexpected daemon response: " + header);
+            }
+            Map<String, Path> result = new LinkedHashMap<>();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("END")) {
+                if (line.startsWith("UNKNOWN ")) {
+                    System.err.println("Unknown class: " + line.substring(8));
+                } else {
+                    int tab = line.indexOf('\t');
+                    result.put(line.substring(0, tab), Paths.get(line.substring(tab + 1)));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable result of one graph build. Queries only read the graph and
+ * allocate their own working state, so any number of them can run on
+ * different threads at once; none of them touches the disk.
+ */
+public final class AnalysisSnapshot {
+    private final ClassGraph graph;
+    private final Path[] paths;
+    private final List<FileSummary> files;
+    // Built on first use by findUnreachable or computeImpact
+    private volatile Reachability reachability;
+
+    AnalysisSnapshot(ClassGraph graph, Path[] paths, Collection<FileSummary> files) {
+        this.graph = graph;
+        this.paths = paths;
+        this.files = new ArrayList<>(files);
+    }
+
+    public int getClassCount() {
+        return graph.size();
+    }
+
+    public int getEdgeCount() {
+        return graph.edgeCount();
+    }
+
+    public int getFileCount() {
+        return files.size();
+    }
+
+    public boolean containsClass(String className) {
+        return graph.id(className) >= 0;
+    }
+
+    // What deleting the given classes would remove, and why
+    public DeletionPlan query(Set<String> targetClassNames) {
+        BitSet targets = new BitSet(graph.size());
+        List<String> unknown = new ArrayList<>();
+        for (String className : targetClassNames) {
+            int id = graph.id(className);
+            if (id >= 0) {
+                targets.set(id);
+            } else {
+                unknown.add(className);
+            }
+        }
+        return new DeletionPlan(this, DeletionCascade.run(graph, reachability(), targets), unknown);
+    }
+
+    // Evaluates many target sets in parallel; results are in input order
+    public List<DeletionPlan> queryAll(Collection<? extends Set<String>> targetSets) {
+        List<Set<String>> inputs = new ArrayList<>(targetSets);
+        DeletionPlan[] plans = new DeletionPlan[inputs.size()];
+        IntStream.range(0, plans.length).parallel()
+            .forEach(i -> plans[i] = query(inputs.get(i)));
+        return Arrays.asList(plans);
+    }
+
+    /*
+     * Tree shaking: marks every class reachable from the entry points and
+     * plans to delete the rest, including cycles nothing live uses. Entry
+     * points are classes with a main method, classes whose name matches one
+     * of the patterns ('*' within a package segment, '**' across segments),
+     * and classes in files using one of the annotations on a type or member.
+     * An annotation given by simple name matches in any package.
+     */
+    public DeletionPlan findUnreachable(List<String> rootPatterns, List<String> rootAnnotations) {
+        List<String> unmatched = new ArrayList<>();
+        BitSet roots = entryPoints(rootPatterns, rootAnnotations, unmatched);
+        BitSet unreachable = reachability().mark(roots);
+        unreachable.flip(0, graph.size());
+        return new DeletionPlan(this, roots, unreachable, unmatched);
+    }
+
+    /*
+     * Dominator tree for what deleting a single class takes with it. Below
+     * the virtual root are the entry points as in findUnreachable, the
+     * classes nothing uses, and anything those miss, so every class is
+     * covered. Built once in near-linear time; queries are then O(1) for
+     * sizes and O(result) for members.
+     */
+    public DeletionImpact computeImpact(List<String> rootPatterns, List<String> rootAnnotations) {
+        BitSet roots = entryPoints(rootPatterns, rootAnnotations, new ArrayList<>());
+        for (int id = 0; id < graph.size(); id++) {
+            if (graph.userCount(id) == 0) {
+                roots.set(id);
+            }
+        }
+        return new DeletionImpact(graph, DominatorTree.build(graph, reachability(), roots));
+    }
+
+    // Patterns and annotations that match nothing are added to unmatched
+    private BitSet entryPoints(List<String> rootPatterns, List<String> rootAnnotations, List<String> unmatched) {
+        BitSet roots = new BitSet(graph.size());
+        BitSet matchedAnnotations = new BitSet(rootAnnotations.size());
+        for (FileSummary file : files) {
+            boolean root = file.hasMainMethod();
+            String[] annotations = file.getAnnotations();
+            for (int a = 0; annotations != null && a < rootAnnotations.size(); a++) {
+                for (String annotation : annotations) {
+                    if (matchesAnnotation(rootAnnotations.get(a), annotation, file)) {
+                        matchedAnnotations.set(a);
+                        root = true;
+                    }
+                }
+            }
+            if (root) {
+                for (String className : file.getDeclaredTypes()) {
+                    int id = graph.id(className);
+                    if (id >= 0) {
+                        roots.set(id);
+                    }
+                }
+            }
+        }
+
+        for (String glob : rootPatterns) {
+            Pattern pattern = classPattern(glob);
+            boolean matched = false;
+            for (int id = 0; id < graph.size(); id++) {
+                if (pattern.matcher(graph.name(id)).matches()) {
+                    roots.set(id);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                unmatched.add(glob);
+            }
+        }
+        for (int a = 0; a < rootAnnotations.size(); a++) {
+            if (!matchedAnnotations.get(a)) {
+                unmatched.add("@" + rootAnnotations.get(a));
+            }
+        }
+        return roots;
+    }
+
+    Reachability reachability() {
+        Reachability reachability = this.reachability;
+        if (reachability == null) {
+            reachability = Reachability.of(graph, paths);
+            this.reachability = reachability;
+        }
+        return reachability;
+    }
+
+    /*
+     * A written annotation is either qualified, or a simple name that the
+     * file imports, imports on demand, or shares the package with.
+     */
+    private static boolean matchesAnnotation(String configured, String written, FileSummary file) {
+        int dot = configured.lastIndexOf('.');
+        if (dot < 0) {
+            return written.equals(configured) || written.endsWith("." + configured);
+        }
+        if (written.indexOf('.') >= 0) {
+            return written.equals(configured);
+        }
+        String packageName = configured.substring(0, dot);
+        if (!written.equals(configured.substring(dot + 1))) {
+            return false;
+        }
+        if (file.getPackageName().equals(packageName)) {
+            return true;
+        }
+        for (String imported : file.getImports()) {
+            if (imported.equals(configured) || imported.equals(packageName + ".*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pattern classPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^.]*");
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                regex.append(c);
+            } else {
+                regex.append('\\').append(c);
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    // Writes both edge directions; DeletionPlan.export adds the deletion set
+    public void export(Path file, GraphFormat format) throws IOException {
+        GraphExporter.write(this, new BitSet(), new BitSet(), file, format);
+    }
+
+    ClassGraph graph() {
+        return graph;
+    }
+
+    Path path(int id) {
+        return paths[id];
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log file writer that never blocks the caller. Messages go onto a lock-free
+ * queue and a single writer thread formats them and writes them in batches
+ * through one buffered writer, flushing once per batch. The writer parks
+ * when the queue is empty and the next message wakes it, so a line reaches
+ * the file as soon as the writer gets scheduled; callers only pay for the
+ * unpark when the writer is actually asleep.
+ */
+final class AsyncLog implements AutoCloseable {
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final class Entry {
+        final long time;
+        final String message;
+        final boolean progress;
+
+        Entry(long time, String message, boolean progress) {
+            this.time = time;
+            this.message = message;
+            this.progress = progress;
+        }
+    }
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Writer out;
+    private final Thread writer;
+    private final AtomicLong nextProgress = new AtomicLong();
+    private volatile LogLevel level = LogLevel.INFO;
+    private volatile boolean closed;
+    // Set by the writer while it is parked, or about to park, on an empty queue
+    private volatile boolean idle;
+
+    // Only touched by the writer thread
+    private long cachedSecond = -1;
+    private String cachedTimestamp;
+
+    AsyncLog(Path file) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 1 << 16);
+        this.nextProgress.set(System.nanoTime());
+        this.writer = new Thread(this::drainLoop, "analysis-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    boolean isEnabled(LogLevel messageLevel) {
+        return messageLevel.compareTo(level) <= 0;
+    }
+
+    void log(LogLevel messageLevel, String message) {
+        if (isEnabled(messageLevel) && !closed) {
+            enqueue(new Entry(System.currentTimeMillis(), message, false));
+        }
+    }
+
+    /*
+     * Progress lines are dropped unless the last one is at least half a
+     * second old; the final line (current == total) always goes through.
+     */
+    void progress(int current, int total) {
+        long now = System.nanoTime();
+        long next = nextProgress.get();
+        if (current < total && (now - next < 0 || !nextProgress.compareAndSet(next, now + PROGRESS_INTERVAL_NANOS))) {
+            return;
+        }
+        int percentage = total == 0 ? 100 : (int) ((current * 100L) / total);
+        if (!closed) {
+            enqueue(new Entry(0, "Progress: " + percentage + "% (" + current + "/" + total + ")", true));
+        }
+    }
+
+    // Untimestamped line, like the progress output
+    void plain(String message) {
+        if (!closed) {
+            enqueue(new Entry(0, message, true));
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        queue.add(entry);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            boolean stopping = closed;
+            try {
+                if (drain()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                System.err.println("Could not write analysis log: " + e.getMessage());
+            }
+            if (stopping) {
+                break;
+            }
+            // Re-checked after idle is set: a message added before then is seen
+            // here, one added after sees idle and unparks
+            idle = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        }
+    }
+
+    private boolean drain() throws IOException {
+        boolean echo = level == LogLevel.DEBUG;
+        boolean wrote = false;
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            String line = entry.progress ? entry.message : "[" + timestamp(entry.time) + "] " + entry.message;
+            out.write(line);
+            out.write('\n');
+            if (echo) {
+                if (entry.progress) {
+                    System.out.print("\r" + line);
+                } else {
+                    System.out.println(line);
+                }
+            }
+            wrote = true;
+        }
+        return wrote;
+    }
+
+    private String timestamp(long millis) {
+        long second = millis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = TIMESTAMP.format(Instant.ofEpochMilli(millis));
+        }
+        return cachedTimestamp;
+    }
+
+    // Writes everything queued so far and closes the file; later messages are ignored
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Could not close analysis log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds {@link FileSummary} instances from compiled classes instead of
+ * source. Classes are grouped by the source file they were compiled from, so
+ * the graph has the same shape as in source mode: one node per declared
+ * class, edges attached to the file's primary type. References are already
+ * fully qualified, so no source parsing is needed. A class file or jar
+ * that cannot be read fails the run, as an unreadable source file does.
+ */
+final class BytecodeInput {
+    // Larger class files are memory-mapped instead of copied into a buffer
+    private static final int MAP_THRESHOLD = 1 << 16;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1 << 16));
+
+    private final ForkJoinPool pool;
+    private final List<String> excludePatterns;
+    private final Queue<CompiledClass> classes = new ConcurrentLinkedQueue<>();
+    private final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+
+    private static final class CompiledClass {
+        final Path classRoot;
+        final String packageName;
+        final String className;
+        final String sourceFile;
+        final Set<String> references;
+        final Set<String> annotations;
+        final boolean mainMethod;
+
+        CompiledClass(Path classRoot, ClassFileReader reader) {
+            String internalName = reader.getClassName();
+            int slash = internalName.lastIndexOf('/');
+            this.classRoot = classRoot;
+            this.packageName = slash < 0 ? "" : internalName.substring(0, slash).replace('/', '.');
+            this.className = internalName.replace('/', '.').replace('$', '.');
+            this.sourceFile = reader.getSourceFile();
+            this.references = reader.getReferences();
+            this.annotations = reader.getAnnotations();
+            this.mainMethod = reader.hasMainMethod();
+        }
+    }
+
+    BytecodeInput(ForkJoinPool pool, List<String> excludePatterns) {
+        this.pool = pool;
+        this.excludePatterns = excludePatterns;
+    }
+
+    /*
+     * target/classes and target/test-classes directories below the root. Test
+     * classes count as users, as test sources do in source mode, so both
+     * modes keep a class that only tests use.
+     */
+    static List<Path> findClassRoots(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                .filter(Files::isDirectory)
+                .filter(p -> p.getFileName() != null
+                    && (p.getFileName().toString().equals("classes") || p.getFileName().toString().equals("test-classes"))
+                    && p.getParent() != null && p.getParent().getFileName() != null
+                    && p.getParent().getFileName().toString().equals("target"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads all classes below the given directories and jars and maps each one
+     * back to a source file under {@code sourceRoot}. Classes whose source
+     * cannot be found keep their class file as path.
+     */
+    Collection<FileSummary> summarize(List<Path> classRoots, Path sourceRoot) throws IOException {
+        List<ForkJoinTask<?>> jars = new ArrayList<>();
+        for (Path classRoot : classRoots) {
+            if (!Files.isDirectory(classRoot)) {
+                jars.add(pool.submit(() -> readJar(classRoot)));
+            }
+        }
+        // Class files are read on the walker threads as they are found
+        for (Path classRoot : classRoots) {
+            if (Files.isDirectory(classRoot)) {
+                new SourceWalker(pool, Collections.<String>emptyList())
+                    .walk(classRoot, ".class", classFile -> readClassFile(classRoot, classFile));
+            }
+        }
+        for (ForkJoinTask<?> jar : jars) {
+            jar.join();
+        }
+        // A class left out would hide its references and let their targets be deleted
+        if (!failures.isEmpty()) {
+            IOException first = failures.poll();
+            IOException failure = new IOException(String.format("Could not read %d class files, first: %s",
+                failures.size() + 1, first.getMessage()), first);
+            for (IOException other : failures) {
+                failure.addSuppressed(other);
+            }
+            throw failure;
+        }
+        return group(sourceIndex(sourceRoot));
+    }
+
+    private void readClassFile(Path classRoot, Path classFile) {
+        if (classFile.getFileName().toString().equals("module-info.class")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = BUFFER.get();
+                buffer.clear();
+                while (buffer.position() < size && channel.read(buffer) >= 0) {
+                    // keep reading until the whole file is buffered
+                }
+                buffer.flip();
+            }
+            classes.add(new CompiledClass(classRoot, ClassFileReader.read(buffer)));
+        } catch (IOException | RuntimeException e) {
+            failures.add(new IOException("Cannot read class file " + classFile + ": " + e, e));
+        }
+    }
+
+    private void readJar(Path jar) {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            byte[] bytes = new byte[1 << 16];
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!name.endsWith(".class") || name.endsWith("module-info.class") || name.startsWith("META-INF/")) {
+                    continue;
+                }
+                int length = 0;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    int n;
+                    while ((n = in.read(bytes, length, bytes.length - length)) > 0) {
+                        length += n;
+                        if (length == bytes.length) {
+                            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                        }
+                    }
+                }
+                try {
+                    classes.add(new CompiledClass(jar, ClassFileReader.read(ByteBuffer.wrap(bytes, 0, length).slice())));
+                } catch (RuntimeException e) {
+                    failures.add(new IOException("Cannot read class " + name + " in " + jar + ": " + e, e));
+                }
+            }
+        } catch (IOException e) {
+            failures.add(new IOException("Cannot read jar " + jar + ": " + e, e));
+        }
+    }
+
+    // Source files by file name, to find the file a class was compiled from
+    private Map<String, List<Path>> sourceIndex(Path sourceRoot) throws IOException {
+        Map<String, List<Path>> sources = new ConcurrentHashMap<>();
+        new SourceWalker(pool, excludePatterns).walk(sourceRoot, ".java", p ->
+            sources.computeIfAbsent(p.getFileName().toString(), k -> new CopyOnWriteArrayList<>())
+                .add(p.toAbsolutePath().normalize()));
+        // Traversal order varies between runs; keep candidate order stable
+        sources.replaceAll((name, paths) -> {
+            List<Path> sorted = new ArrayList<>(paths);
+            Collections.sort(sorted);
+            return sorted;
+        });
+        return sources;
+    }
+
+    private Collection<FileSummary> group(Map<String, List<Path>> sources) {
+        Map<Path, List<CompiledClass>> bySource = new HashMap<>();
+        for (CompiledClass compiled : classes) {
+            bySource.computeIfAbsent(sourceOf(compiled, sources), k -> new ArrayList<>()).add(compiled);
+        }
+
+        List<FileSummary> summaries = new ArrayList<>(bySource.size());
+        for (Map.Entry<Path, List<CompiledClass>> entry : bySource.entrySet()) {
+            Path path = entry.getKey();
+            List<CompiledClass> compiled = entry.getValue();
+            String packageName = compiled.get(0).packageName;
+            String fileName = path.getFileName().toString();
+            String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+            String primaryCandidate = packageName.isEmpty() ? baseName : packageName + "." + baseName;
+
+            Set<String> declared = new LinkedHashSet<>();
+            for (CompiledClass c : compiled) {
+                if (!isLocalOrAnonymous(c.className, c.packageName)) {
+                    declared.add(c.className);
+                }
+            }
+
+            // Classes of the same file always name each other; those are not edges
+            Set<String> referenced = new LinkedHashSet<>();
+            for (CompiledClass c : compiled) {
+                for (String reference : c.references) {
+                    String name = canonical(reference.replace('/', '.').replace('$', '.'));
+                    if (!declared.contains(name) && !name.startsWith("java.") && !name.startsWith("javax.")) {
+                        referenced.add(name);
+                    }
+                }
+            }
+
+            Set<String> annotations = new LinkedHashSet<>();
+            boolean mainMethod = false;
+            for (CompiledClass c : compiled) {
+                annotations.addAll(c.annotations);
+                mainMethod |= c.mainMethod;
+            }
+
+            summaries.add(new FileSummary(path, packageName, new String[0],
+                declared.toArray(new String[0]),
+                declared.contains(primaryCandidate) ? primaryCandidate : null,
+                referenced.toArray(new String[0]), annotations.toArray(new String[0]), mainMethod));
+        }
+        return summaries;
+    }
+
+    private static Path sourceOf(CompiledClass compiled, Map<String, List<Path>> sources) {
+        if (compiled.sourceFile != null) {
+            List<Path> candidates = sources.get(compiled.sourceFile);
+            if (candidates != null) {
+                String suffix = compiled.packageName.isEmpty() ? compiled.sourceFile
+                    : compiled.packageName.replace('.', '/') + "/" + compiled.sourceFile;
+                // target/classes sits next to src/, so prefer the source in the same module
+                Path module = compiled.classRoot.getParent() != null ? compiled.classRoot.getParent().getParent() : null;
+                Path match = null;
+                for (Path candidate : candidates) {
+                    if (candidate.toString().replace('\\', '/').endsWith("/" + suffix)) {
+                        if (module != null && candidate.startsWith(module.toAbsolutePath().normalize())) {
+                            return candidate;
+                        }
+                        if (match == null) {
+                            match = candidate;
+                        }
+                    }
+                }
+                if (match != null) {
+                    return match;
+                }
+            }
+        }
+        // No source: group by the top-level class file instead
+        String relative = compiled.className.substring(compiled.packageName.isEmpty() ? 0 : compiled.packageName.length() + 1);
+        int nested = relative.indexOf('.');
+        String topLevel = nested < 0 ? relative : relative.substring(0, nested);
+        String packagePath = compiled.packageName.isEmpty() ? "" : compiled.packageName.replace('.', '/') + "/";
+        return compiled.classRoot.resolve(packagePath + topLevel + ".class").toAbsolutePath().normalize();
+    }
+
+    // Outer.1 and Outer.1Local have no source-level FQN
+    private static boolean isLocalOrAnonymous(String className, String packageName) {
+        String[] segments = className.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).split("\\.");
+        for (int i = 1; i < segments.length; i++) {
+            if (!segments[i].isEmpty() && Character.isDigit(segments[i].charAt(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // References into local or anonymous classes count as references to the enclosing class
+    private static String canonical(String className) {
+        int start = className.indexOf('.');
+        while (start >= 0 && start + 1 < className.length()) {
+            if (Character.isDigit(className.charAt(start + 1))) {
+                return className.substring(0, start);
+            }
+            start = className.indexOf('.', start + 1);
+        }
+        return className;
+    }
+}
@@ -1,22 +1,191 @@
 package com.example.tools;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
+/*
+ * Run from the jar that mvn package builds with every dependency inside;
+ * the plain jar has a main class but no dependencies:
+ *
+ *   java -jar target/javadeleteform-1.0-SNAPSHOT-jar-with-dependencies.jar <command> ...
+ *
+ * Without arguments, analyzes TestProject in the working directory and
+ * deletes the configured targets; --reactor alone does the same in reactor
+ * mode. Otherwise:
+ *
+ *   delete <root> [--reactor] [--shards <n>] [--symbols] <class>...
+ *                                          delete the classes and what only they use; with --reactor,
+ *                                          references resolve per Maven module and modules the classes
+ *                                          cannot affect are skipped; with --shards, files are parsed
+ *                                          in n worker JVMs; --symbols as for shake below
+ *
+ * delete and shake also take --export <file> <format>, which writes the graph with the deletion set
+ * marked; the format is dot, json_lines or binary.
+ *
+ * Daemon mode:
+ *
+ *   serve <root> [port]                    keep the graph of <root> in memory; stdin protocol without a port
+ *   query <port> [--delete] <class>...     ask a running daemon what deleting the classes removes
+ *
+ * Entry point analysis; roots are main methods plus any --root patterns and --annotation names,
+ * and --symbols resolves references with the symbol solver:
+ *
+ *   shake <root> [--delete] [roots]        report, or delete, classes no root reaches
+ *   impact <root> [--top <n>] [roots]      rank classes by how much deleting each frees
+ */
 public class ClassDeleter {
     public static void main(String[] args) {
         try {
+            if (args.length >= 2 && args[0].equals("serve")) {
+                serve(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : -1);
+                return;
+            }
+            if (args.length >= 2 && (args[0].equals("shake") || args[0].equals("impact"))) {
+                entryPoints(args);
+                return;
+            }
+            if (args.length >= 3 && args[0].equals("delete")) {
+                delete(args);
+                return;
+            }
+            if (args.length >= 3 && args[0].equals("query")) {
+                query(Integer.parseInt(args[1]), Arrays.asList(args).subList(2, args.length).toArray(new String[0]));
+                return;
+            }
+
+            boolean reactor = args.length == 1 && args[0].equals("--reactor");
+            if (args.length > 0 && !reactor) {
+                throw new IllegalArgumentException("Unknown arguments: " + String.join(" ", args));
+            }
             String projectRoot = System.getProperty("user.dir") + "/TestProject";
             Set<String> classesToDelete = new HashSet<>();
             classesToDelete.add("root.cls.TargetA");
             classesToDelete.add("root.cls.TargetB");
             
             System.out.println("Scanning directory: " + projectRoot);
-            ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer();
-            analyzer.analyzeAndDeleteClasses(projectRoot, classesToDelete);
-            
+            try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer()) {
+                analyzer.setReactorAware(reactor);
+                analyzer.analyzeAndDeleteClasses(projectRoot, classesToDelete);
+            }
+
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-} 
\ No newline at end of file
+
+    private static void delete(String[] args) throws Exception {
+        int shards = 1;
+        boolean reactor = false;
+        boolean symbols = false;
+        Path exportFile = null;
+        GraphFormat exportFormat = null;
+        Set<String> targets = new LinkedHashSet<>();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--reactor")) {
+                reactor = true;
+            } else if (args[i].equals("--shards") && i + 1 < args.length) {
+                shards = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--symbols")) {
+                symbols = true;
+            } else if (args[i].equals("--export") && i + 2 < args.length) {
+                exportFile = Paths.get(args[++i]);
+                exportFormat = graphFormat(args[++i]);
+            } else {
+                targets.add(args[i]);
+            }
+        }
+        System.out.println("Scanning directory: " + args[1]);
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer()) {
+            analyzer.setReactorAware(reactor);
+            analyzer.setShards(shards);
+            analyzer.setSymbolSolving(symbols);
+            analyzer.setGraphExport(exportFile, exportFormat);
+            analyzer.analyzeAndDeleteClasses(args[1], targets);
+        }
+    }
+
+    private static void serve(Path root, int port) throws Exception {
+        try (AnalysisDaemon daemon = new AnalysisDaemon(root, SourceWalker.DEFAULT_EXCLUDES)) {
+            daemon.start();
+            if (port < 0) {
+                daemon.serveStdin();
+            } else {
+                daemon.serveSocket(port);
+            }
+        }
+    }
+
+    private static void entryPoints(String[] args) throws Exception {
+        boolean delete = false;
+        boolean symbols = false;
+        int top = 20;
+        Path exportFile = null;
+        GraphFormat exportFormat = null;
+        List<String> rootPatterns = new ArrayList<>();
+        List<String> rootAnnotations = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--delete") && args[0].equals("shake")) {
+                delete = true;
+            } else if (args[i].equals("--symbols")) {
+                symbols = true;
+            } else if (args[i].equals("--export") && args[0].equals("shake") && i + 2 < args.length) {
+                exportFile = Paths.get(args[++i]);
+                exportFormat = graphFormat(args[++i]);
+            } else if (args[i].equals("--top") && args[0].equals("impact") && i + 1 < args.length) {
+                top = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--root") && i + 1 < args.length) {
+                rootPatterns.add(args[++i]);
+            } else if (args[i].equals("--annotation") && i + 1 < args.length) {
+                rootAnnotations.add(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        System.out.println("Scanning directory: " + args[1]);
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer()) {
+            analyzer.setSymbolSolving(symbols);
+            analyzer.setGraphExport(exportFile, exportFormat);
+            if (args[0].equals("shake")) {
+                analyzer.removeUnreachableClasses(args[1], rootPatterns, rootAnnotations, delete);
+            } else {
+                analyzer.reportDeletionImpact(args[1], rootPatterns, rootAnnotations, top);
+            }
+        }
+    }
+
+    // Case-insensitive, with - for _: dot, json-lines, binary
+    private static GraphFormat graphFormat(String name) {
+        try {
+            return GraphFormat.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown graph format: " + name
+                + ", expected one of " + Arrays.toString(GraphFormat.values()));
+        }
+    }
+
+    private static void query(int port, String[] args) throws Exception {
+        boolean delete = args[0].equals("--delete");
+        Set<String> targets = new LinkedHashSet<>(Arrays.asList(args).subList(delete ? 1 : 0, args.length));
+        Map<String, Path> result = AnalysisDaemon.query(port, targets);
+        for (Map.Entry<String, Path> entry : result.entrySet()) {
+            System.out.println(entry.getKey() + "\t" + entry.getValue());
+            if (delete) {
+                if (entry.getValue().toString().endsWith(".java")) {
+                    Files.deleteIfExists(entry.getValue());
+                } else {
+                    System.out.println("Not deleting class without source: " + entry.getKey());
+                }
+            }
+        }
+        System.out.println(result.size() + (delete ? " classes deleted" : " classes would be deleted"));
+    }
+}
@@ -1,317 +1,914 @@
 package com.example.tools;
 
 import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.io.PrintWriter;
-import java.io.FileWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-public class ClassDependencyAnalyzer {
+public class ClassDependencyAnalyzer implements AutoCloseable {
     private static final int THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
-    private static final boolean DEBUG_MODE = false;
-    private final PrintWriter logWriter;
-    private final ConcurrentHashMap<String, Set<String>> dependencyGraph = new ConcurrentHashMap<>();
+    private final AsyncLog logger;
+    private Path profileFile;
+    private RunProfile profile;
+    private ClassGraph dependencyGraph;
     private final ConcurrentHashMap<String, Path> classToPathMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> classesToDelete = new ConcurrentHashMap<>();
     private final Set<String> allClasses = ConcurrentHashMap.newKeySet();
+    private final Queue<FileSummary> summaries = new ConcurrentLinkedQueue<>();
+    // Solved references differ from textual ones, so each mode keeps its own cache
+    private static final String SYMBOL_CACHE_SUFFIX = ".symbols";
+    private Path cacheFile;
+    private boolean cacheEnabled = true;
+    private AnalysisCache cache;
+    private TypeIndex typeIndex;
+    private int maxDeletionPaths = 1;
+    private boolean bytecodeInput;
+    private List<Path> classRoots;
+    private List<String> excludePatterns = SourceWalker.DEFAULT_EXCLUDES;
+    private boolean reactorAware;
+    private boolean symbolSolving;
+    private int shards = 1;
+    private SymbolResolution symbols;
+    private Path exportFile;
+    private GraphFormat exportFormat;
+    // Reactor module of each class in reactor mode, otherwise null
+    private Map<String, Reactor.Module> moduleOfClass;
+    private final Map<String, Pipeline.StageConfig> stageConfigs = new LinkedHashMap<>();
+
+    // One parser per worker thread; comments and lexical info are never used
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() ->
+        new JavaParser(new ParserConfiguration()
+            .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
+            .setAttributeComments(false)
+            .setLexicalPreservationEnabled(false)
+            .setStoreTokens(false)));
 
     public ClassDependencyAnalyzer() throws IOException {
-        String logFile = "deletion_analysis_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".log";
-        this.logWriter = new PrintWriter(new FileWriter(logFile, true));
+        this(Paths.get(""));
+    }
+
+    // Log and profile files go into the given directory
+    ClassDependencyAnalyzer(Path outputDirectory) throws IOException {
+        String runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        this.logger = new AsyncLog(outputDirectory.resolve("deletion_analysis_" + runId + ".log"));
+        this.profileFile = outputDirectory.resolve("deletion_profile_" + runId + ".json");
+        stageConfigs.put("read", new Pipeline.StageConfig(2, 64));
+        stageConfigs.put("parse", new Pipeline.StageConfig(THREAD_POOL_SIZE, 64));
+        stageConfigs.put("extract", new Pipeline.StageConfig(Math.max(1, THREAD_POOL_SIZE / 2), 64));
+        stageConfigs.put("merge", new Pipeline.StageConfig(1, 256));
     }
 
     private void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        String logMessage = String.format("[%s] %s", timestamp, message);
-        if (DEBUG_MODE) {
-            System.out.println(logMessage);
-        }
-        logWriter.println(logMessage);
-        logWriter.flush();
+        logger.log(LogLevel.INFO, message);
     }
 
     private void logProgress(String message) {
-        if (DEBUG_MODE) {
-            System.out.print("\r" + message);
+        logger.plain(message);
+    }
+
+    // JSON run profile, written next to the log by default; null disables it
+    public void setProfileFile(Path profileFile) {
+        this.profileFile = profileFile;
+    }
+
+    // INFO by default; DEBUG also echoes the log to the console
+    public void setLogLevel(LogLevel level) {
+        logger.setLevel(level);
+    }
+
+    // Defaults to a per-root file in the user cache directory; null disables caching
+    public void setCacheFile(Path cacheFile) {
+        this.cacheFile = cacheFile;
+        this.cacheEnabled = cacheFile != null;
+    }
+
+    /*
+     * Directories skipped during the source scan, as globs relative to the
+     * root. A pattern matches at any depth unless it starts with '/'.
+     */
+    public void setExcludePatterns(List<String> excludePatterns) {
+        this.excludePatterns = excludePatterns;
+    }
+
+    /*
+     * Reads the graph from compiled classes instead of source. Class roots are
+     * directories or jars; with none given, every target/classes and
+     * target/test-classes directory below the analyzed root is used. Deletion
+     * still targets source files.
+     */
+    public void setBytecodeInput(boolean bytecodeInput, List<Path> classRoots) {
+        this.bytecodeInput = bytecodeInput;
+        this.classRoots = classRoots;
+    }
+
+    /*
+     * Treats the root as a Maven reactor: a class only sees the classes of its
+     * own module and of the modules it depends on, and modules the targets
+     * cannot affect are not analyzed at all. Files outside every module see
+     * everything, as without this setting.
+     */
+    public void setReactorAware(boolean reactorAware) {
+        this.reactorAware = reactorAware;
+    }
+
+    /*
+     * Extracts references with the symbol solver over the tree's source roots
+     * instead of textually: more accurate edges for several times the
+     * extraction cost. See SymbolResolution. Source input only.
+     */
+    public void setSymbolSolving(boolean symbolSolving) {
+        this.symbolSolving = symbolSolving;
+    }
+
+    /*
+     * Parses the source files in this many worker JVMs instead of in this
+     * one; 1, the default, keeps everything in process. Only summaries come
+     * back, so the parsers' memory and GC load stay in the workers. Cached
+     * files are not sent to a worker. Textual extraction only.
+     */
+    public void setShards(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shards);
         }
-        logWriter.println(message);
-        logWriter.flush();
+        this.shards = shards;
     }
 
+    /*
+     * Makes analyzeAndDeleteClasses export the graph with the deletion set
+     * before deleting anything. A null file turns the export off.
+     */
+    public void setGraphExport(Path exportFile, GraphFormat exportFormat) {
+        this.exportFile = exportFile;
+        this.exportFormat = exportFormat;
+    }
+
+    /*
+     * One-shot run: analyze, log what the targets take with them, delete it
+     * and close the log. Use analyze() and delete() to keep the graph.
+     */
     public void analyzeAndDeleteClasses(String rootPath, Set<String> targetClassNames) throws IOException {
         try {
-            log("Starting analysis...");
-            
-            log("Scanning files... ");
-            scanJavaFiles(new File(rootPath));
-            log("Done");
-            
-            log("Analyzing dependencies... ");
-            buildDependencyGraph(rootPath);
-            log("Done");
-            
+            AnalysisSnapshot snapshot = analyze(rootPath, targetClassNames);
+
             log("Finding classes to delete... ");
-            findClassesToDelete(targetClassNames);
+            long start = System.nanoTime();
+            DeletionPlan plan = snapshot.query(targetClassNames);
+            profile.phase("cascade", start);
+            logPlan(plan);
             log("Done");
+
+            if (exportFile != null) {
+                start = System.nanoTime();
+                plan.export(exportFile, exportFormat);
+                profile.phase("export", start);
+                log("Exported graph to " + exportFile);
+            }
             
-            int deleteCount = classesToDelete.size();
+            int deleteCount = plan.getDeletableClasses().size();
             if (deleteCount > 0) {
                 log(String.format("Deleting %d classes...", deleteCount));
-                deleteClasses(rootPath);
+                start = System.nanoTime();
+                delete(plan);
+                profile.phase("deletion", start);
                 log("Done");
             } else {
                 log("No classes to delete");
             }
+            profile.completed();
         } finally {
-            logWriter.close();
+            writeProfile();
+            close();
         }
     }
 
-    private void scanJavaFiles(File directory) {
-        if (directory.isDirectory()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-                try {
-                    Arrays.stream(files)
-                        .parallel()
-                        .forEach(file -> {
-                            if (file.isDirectory()) {
-                                scanJavaFiles(file);
-                            } else if (file.getName().endsWith(".java")) {
-                                executor.submit(() -> {
-                                    try {
-                                        CompilationUnit cu = new JavaParser().parse(file).getResult().orElse(null);
-                                        if (cu != null) {
-                                            cu.findAll(ClassOrInterfaceDeclaration.class).forEach(c -> {
-                                                String className = c.getFullyQualifiedName().orElse("");
-                                                if (!className.isEmpty()) {
-                                                    allClasses.add(className);
-                                                    classToPathMap.put(className, file.toPath());
-                                                }
-                                            });
-                                        }
-                                    } catch (IOException e) {
-                                        e.printStackTrace();
-                                    }
-                                });
-                            }
-                        });
-                } finally {
-                    shutdownExecutor(executor);
-                }
+    /*
+     * Tree-shaking run: deletes, or with delete false only logs, every class
+     * that no entry point reaches. See AnalysisSnapshot.findUnreachable for
+     * what counts as an entry point.
+     */
+    public void removeUnreachableClasses(String rootPath, List<String> rootPatterns,
+            List<String> rootAnnotations, boolean delete) throws IOException {
+        try {
+            AnalysisSnapshot snapshot = analyze(rootPath);
+
+            log("Marking classes reachable from entry points... ");
+            long start = System.nanoTime();
+            DeletionPlan plan = snapshot.findUnreachable(rootPatterns, rootAnnotations);
+            profile.phase("marking", start);
+            for (String root : plan.getUnknownTargets()) {
+                log("No class matches entry point " + root);
+            }
+            for (String className : plan.getDeletableClasses().keySet()) {
+                log("Unreachable class: " + className);
+            }
+            for (String className : plan.getProtectedClasses()) {
+                log("Keeping tool class: " + className);
+            }
+            profile.count("unreachable", plan.getDeletableClasses().size());
+            log("Done");
+
+            if (exportFile != null) {
+                start = System.nanoTime();
+                plan.export(exportFile, exportFormat);
+                profile.phase("export", start);
+                log("Exported graph to " + exportFile);
+            }
+
+            int deleteCount = plan.getDeletableClasses().size();
+            if (deleteCount == 0) {
+                log("No unreachable classes");
+            } else if (!delete) {
+                log(String.format("%d unreachable classes, report only", deleteCount));
+            } else {
+                log(String.format("Deleting %d classes...", deleteCount));
+                start = System.nanoTime();
+                delete(plan);
+                profile.phase("deletion", start);
+                log("Done");
             }
+            profile.completed();
+        } finally {
+            writeProfile();
+            close();
         }
     }
 
-    private void buildDependencyGraph(String rootPath) throws IOException {
-        ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+    /*
+     * Logs the classes whose deletion alone would free the most classes,
+     * with entry points as for removeUnreachableClasses. Deletes nothing.
+     */
+    public void reportDeletionImpact(String rootPath, List<String> rootPatterns,
+            List<String> rootAnnotations, int limit) throws IOException {
         try {
-            List<Path> javaFiles = Files.walk(Paths.get(rootPath))
-                .filter(p -> p.toString().endsWith(".java"))
-                .collect(Collectors.toList());
+            AnalysisSnapshot snapshot = analyze(rootPath);
 
-            AtomicInteger processedFiles = new AtomicInteger(0);
-            int totalFiles = javaFiles.size();
-
-            // First pass: Scan all classes
-            CompletableFuture<?>[] futures = javaFiles.stream()
-                .map(path -> CompletableFuture.runAsync(() -> {
-                    try {
-                        CompilationUnit cu = new JavaParser().parse(path).getResult().orElse(null);
-                        if (cu != null) {
-                            cu.findAll(ClassOrInterfaceDeclaration.class).forEach(c -> {
-                                String className = c.getFullyQualifiedName().orElse("");
-                                if (!className.isEmpty()) {
-                                    allClasses.add(className);
-                                    classToPathMap.put(className, path);
-                                }
-                            });
-                        }
-                        updateProgress(processedFiles.incrementAndGet(), totalFiles);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }, executor))
-                .toArray(CompletableFuture[]::new);
+            log("Computing dominator tree... ");
+            long start = System.nanoTime();
+            DeletionImpact impact = snapshot.computeImpact(rootPatterns, rootAnnotations);
+            profile.phase("dominators", start);
+            log("Done");
 
-            CompletableFuture.allOf(futures).join();
+            log(String.format("Classes freeing the most code when deleted (top %d):", limit));
+            for (String className : impact.getLargest(limit)) {
+                String dominator = impact.getImmediateDominator(className);
+                log(String.format("%8d  %s%s", impact.getExclusiveSize(className), className,
+                    dominator != null ? "  (only reached through " + dominator + ")" : ""));
+            }
+            profile.completed();
+        } finally {
+            writeProfile();
+            close();
+        }
+    }
 
-            // Second pass: Analyze dependencies
-            processedFiles.set(0);
-            futures = javaFiles.stream()
-                .map(path -> CompletableFuture.runAsync(() -> {
-                    analyzeDependencies(path);
-                    updateProgress(processedFiles.incrementAndGet(), totalFiles);
-                }, executor))
-                .toArray(CompletableFuture[]::new);
+    /*
+     * Builds the graph of the tree under rootPath. The snapshot can be
+     * queried any number of times, from any thread, without touching disk.
+     */
+    public AnalysisSnapshot analyze(String rootPath) throws IOException {
+        return analyze(rootPath, null);
+    }
 
-            CompletableFuture.allOf(futures).join();
-            logProgress("Done");
-        } finally {
-            shutdownExecutor(executor);
+    /*
+     * As analyze(rootPath), but in reactor mode only the modules the given
+     * targets can affect are analyzed. The snapshot then only answers
+     * queries for targets in the same modules.
+     */
+    public AnalysisSnapshot analyze(String rootPath, Set<String> targetClassNames) throws IOException {
+        buildGraph(rootPath, targetClassNames);
+        Path[] paths = new Path[dependencyGraph.size()];
+        for (int id = 0; id < paths.length; id++) {
+            paths[id] = classToPathMap.get(dependencyGraph.name(id));
         }
+        return new AnalysisSnapshot(dependencyGraph, paths, summaries);
     }
 
-    private void analyzeDependencies(Path javaFile) {
-        try {
-            CompilationUnit cu = new JavaParser().parse(javaFile).getResult().orElse(null);
-            if (cu != null) {
-                DependencyVisitor visitor = new DependencyVisitor(allClasses);
-                visitor.visit(cu, null);
-                
-                String className = cu.getPrimaryType()
-                    .filter(type -> type.isClassOrInterfaceDeclaration())
-                    .map(type -> type.asClassOrInterfaceDeclaration())
-                    .map(c -> c.getFullyQualifiedName().orElse(""))
-                    .orElse("");
-                
-                if (!className.isEmpty()) {
-                    dependencyGraph.put(className, visitor.getDependencies());
-                    classToPathMap.put(className, javaFile);
-                }
+    /*
+     * Discovery and extraction only. Afterwards the graph and the complete
+     * summaries (referenced types filled in) are available to callers in
+     * this package; nothing is deleted and the log stays open.
+     */
+    void buildGraph(String rootPath) throws IOException {
+        buildGraph(rootPath, null);
+    }
+
+    private void buildGraph(String rootPath, Set<String> targetClassNames) throws IOException {
+        // An analyzer can be reused; nothing of an earlier tree may leak into this graph
+        summaries.clear();
+        allClasses.clear();
+        classToPathMap.clear();
+        moduleOfClass = null;
+        typeIndex = null;
+        dependencyGraph = null;
+        cache = null;
+        profile = new RunProfile();
+        profile.set("root", Paths.get(rootPath).toAbsolutePath().normalize().toString());
+        profile.set("input", bytecodeInput ? "bytecode" : symbolSolving ? "source, symbol solver" : "source");
+        profile.set("threads", THREAD_POOL_SIZE);
+        log("Starting analysis...");
+        boolean sharded = shards > 1 && !bytecodeInput;
+        if (sharded && symbolSolving) {
+            throw new IllegalStateException("Symbol solving does not support sharded extraction");
+        }
+        if (sharded) {
+            profile.set("shards", shards);
+        }
+
+        if (cacheEnabled && !bytecodeInput) {
+            Path file = cacheFile != null ? cacheFile : AnalysisCache.defaultFile(Paths.get(rootPath));
+            if (symbolSolving) {
+                file = file.resolveSibling(file.getFileName() + SYMBOL_CACHE_SUFFIX);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            cache = new AnalysisCache(file);
+            log(cache.load() ? "Loaded analysis cache" : "No usable analysis cache, starting cold");
         }
-    }
+        
+        long start = System.nanoTime();
+        if (bytecodeInput) {
+            log("Reading compiled classes... ");
+            readCompiledClasses(Paths.get(rootPath));
+        } else if (sharded) {
+            log("Scanning files... ");
+            parseInShards(Paths.get(rootPath));
+        } else {
+            log("Scanning files... ");
+            scanJavaFiles(Paths.get(rootPath));
+        }
+        profile.phase("discovery", start);
+        log("Done");
 
-    private void findClassesToDelete(Set<String> targetClassNames) {
-        // Initialize with target classes
-        for (String targetClassName : targetClassNames) {
-            Path targetPath = classToPathMap.get(targetClassName);
-            if (targetPath != null) {
-                classesToDelete.put(targetClassName, targetPath.toString());
-                log("Target class: " + targetClassName);
+        if (reactorAware) {
+            shardByModule(Paths.get(rootPath), targetClassNames);
+        }
+        profile.count("files", summaries.size());
+
+        log("Analyzing dependencies... ");
+        start = System.nanoTime();
+        buildDependencyGraph();
+        profile.phase("extraction", start);
+        profile.count("classes", dependencyGraph.size());
+        profile.count("edges", dependencyGraph.edgeCount());
+        log("Done");
+
+        if (cache != null) {
+            log(cache.report());
+            try {
+                cache.save();
+            } catch (IOException e) {
+                log("Could not write analysis cache: " + e.getMessage());
             }
         }
+    }
 
-        // Build reverse dependency graph
-        Map<String, Set<String>> reverseDependencies = buildReverseDependencyGraph();
+    ClassGraph getGraph() {
+        return dependencyGraph;
+    }
 
-        // Find all dependencies of target classes
-        Set<String> allDependenciesOfTargets = new HashSet<>();
-        for (String targetClassName : targetClassNames) {
-            findAllDependencies(targetClassName, allDependenciesOfTargets, new HashSet<>());
+    Collection<FileSummary> getSummaries() {
+        return summaries;
+    }
+
+    private void writeProfile() {
+        if (profileFile == null || profile == null) {
+            return;
         }
+        try {
+            profile.write(profileFile);
+            log("Wrote run profile to " + profileFile);
+        } catch (IOException e) {
+            log("Could not write run profile: " + e.getMessage());
+        }
+    }
 
-        // Iteratively find classes to delete
-        boolean changed;
-        do {
-            changed = false;
-            for (String dependency : allDependenciesOfTargets) {
-                if (classesToDelete.containsKey(dependency)) {
-                    continue; // Skip if already marked for deletion
+    private void scanJavaFiles(Path root) throws IOException {
+        Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(THREAD_POOL_SIZE);
+        try {
+            SourceWalker walker = new SourceWalker(pool, excludePatterns);
+            walker.walk(root, ".java", file -> {
+                Path path = file.toAbsolutePath().normalize();
+                try {
+                    FileSummary summary = discover(path);
+                    if (summary != null) {
+                        summaries.add(summary);
+                    }
+                } catch (IOException e) {
+                    logger.log(LogLevel.ERROR, "Cannot read " + path + ": " + e);
+                    failures.add(e);
                 }
+            });
+            log(walker.report());
+        } finally {
+            pool.shutdown();
+        }
+        failIfUnread(failures);
+    }
 
-                Set<String> usedBy = reverseDependencies.getOrDefault(dependency, new HashSet<>());
-                boolean allUsersDeleted = true;
-                
-                // Check if all users of this dependency are either target classes or marked for deletion
-                for (String user : usedBy) {
-                    if (!targetClassNames.contains(user) && !classesToDelete.containsKey(user)) {
-                        allUsersDeleted = false;
-                        break;
+    // A file left out would hide its references and let their targets be deleted
+    private static void failIfUnread(Collection<IOException> failures) throws IOException {
+        if (failures.isEmpty()) {
+            return;
+        }
+        Iterator<IOException> it = failures.iterator();
+        IOException first = it.next();
+        IOException failure = new IOException(String.format("Could not read %d source files, first: %s",
+            failures.size(), first.getMessage()), first);
+        while (it.hasNext()) {
+            failure.addSuppressed(it.next());
+        }
+        throw failure;
+    }
+
+    /*
+     * Cache hits are used as they are; every other file goes to a shard
+     * worker, which returns it complete, so the extraction pass only
+     * resolves.
+     */
+    private void parseInShards(Path root) throws IOException {
+        Queue<Path> pending = new ConcurrentLinkedQueue<>();
+        Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(THREAD_POOL_SIZE);
+        try {
+            SourceWalker walker = new SourceWalker(pool, excludePatterns);
+            walker.walk(root, ".java", file -> {
+                Path path = file.toAbsolutePath().normalize();
+                try {
+                    FileSummary cached = cache != null ? cache.lookup(path) : null;
+                    if (cached != null) {
+                        summaries.add(cached);
+                    } else {
+                        pending.add(path);
                     }
+                } catch (IOException e) {
+                    logger.log(LogLevel.ERROR, "Cannot read " + path + ": " + e);
+                    failures.add(e);
                 }
+            });
+            log(walker.report());
+        } finally {
+            pool.shutdown();
+        }
+        failIfUnread(failures);
+
+        long start = System.nanoTime();
+        List<FileSummary> parsed = new ShardedExtraction(shards, this::log).run(new ArrayList<>(pending));
+        profile.phase("shards", start);
+        profile.count("filesParsedInShards", parsed.size());
+        for (FileSummary summary : parsed) {
+            if (cache != null) {
+                cache.store(summary);
+            }
+            summaries.add(summary);
+        }
+    }
 
-                if (allUsersDeleted && !usedBy.isEmpty()) {
-                    Path filePath = classToPathMap.get(dependency);
-                    if (filePath != null) {
-                        classesToDelete.put(dependency, filePath.toString());
-                        log("\nDependent class: " + dependency);
-                        log("Deletion paths:");
-                        findDeletionPaths(dependency, targetClassNames, reverseDependencies, new ArrayList<>());
-                        changed = true;
-                    }
+    private void readCompiledClasses(Path root) throws IOException {
+        List<Path> roots = classRoots != null && !classRoots.isEmpty() ? classRoots : BytecodeInput.findClassRoots(root);
+        log("Class roots: " + roots);
+        ForkJoinPool pool = new ForkJoinPool(THREAD_POOL_SIZE);
+        try {
+            summaries.addAll(new BytecodeInput(pool, excludePatterns).summarize(roots, root));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Assigns every class to its reactor module. Given targets, the files of
+     * modules the targets cannot affect are dropped here, before anything is
+     * parsed or resolved; their cache entries are kept for later runs.
+     */
+    private void shardByModule(Path root, Set<String> targetClassNames) throws IOException {
+        Reactor reactor = Reactor.load(root);
+        if (reactor == null) {
+            log("No pom.xml at the root, analyzing as a single module");
+            return;
+        }
+        moduleOfClass = new HashMap<>();
+        BitSet targetModules = new BitSet();
+        for (FileSummary summary : summaries) {
+            Reactor.Module module = reactor.moduleOf(summary.getPath());
+            if (module == null) {
+                continue;
+            }
+            for (String className : summary.getDeclaredTypes()) {
+                moduleOfClass.put(className, module);
+                if (targetClassNames != null && targetClassNames.contains(className)) {
+                    targetModules.set(module.index);
                 }
             }
-        } while (changed); // Continue until no more classes can be marked for deletion
+        }
 
-        // Remove tool classes from deletion list
-        classesToDelete.keySet().removeIf(className -> {
-            if (className.startsWith("com.example.tools.")) {
-                log("Keeping tool class: " + className);
-                return true;
+        int moduleCount = reactor.modules().size();
+        BitSet affected = new BitSet();
+        affected.set(0, moduleCount);
+        if (targetClassNames != null) {
+            affected = reactor.affectedBy(targetModules);
+            BitSet analyzed = affected;
+            summaries.removeIf(summary -> {
+                Reactor.Module module = reactor.moduleOf(summary.getPath());
+                return module != null && !analyzed.get(module.index);
+            });
+            moduleOfClass.values().removeIf(module -> !analyzed.get(module.index));
+            for (Reactor.Module module : reactor.modules()) {
+                if (!analyzed.get(module.index)) {
+                    log("Skipping module not affected by the targets: " + module);
+                }
             }
+        }
+        log(String.format("Reactor: %d modules, %d analyzed, %d skipped",
+            moduleCount, affected.cardinality(), moduleCount - affected.cardinality()));
+        profile.count("modules", moduleCount);
+        profile.count("modulesSkipped", moduleCount - affected.cardinality());
+    }
+
+    /*
+     * Declarations come from the cache or the lexical scanner; the full parser
+     * only runs here for files the scanner rejects. Referenced types of
+     * scanned files are filled in by the extraction pass.
+     */
+    private FileSummary discover(Path javaFile) throws IOException {
+        FileSummary summary = cache != null ? cache.lookup(javaFile) : null;
+        if (summary == null) {
+            summary = DeclarationScanner.scan(javaFile);
+        }
+        if (summary == null) {
+            long start = System.nanoTime();
+            summary = summarize(javaFile, Files.readAllBytes(javaFile));
+            profile.parsed(javaFile, System.nanoTime() - start);
+            if (summary != null && symbolSolving) {
+                // Textual references; extraction parses the file again with the solver
+                summary = summary.withReferences(null, null, false);
+            }
+            if (summary != null && cache != null) {
+                cache.store(summary);
+            }
+        }
+        return summary;
+    }
+
+    /*
+     * The summary a full run ends up with for one file, outside the
+     * pipeline: declarations from the scanner when it accepts the file,
+     * references from the parser, or none when the parser rejects it.
+     * Null when neither can read the file. Textual references only.
+     */
+    static FileSummary summarizeComplete(Path javaFile) throws IOException {
+        FileSummary scanned = DeclarationScanner.scan(javaFile);
+        FileSummary parsed = summarize(javaFile, Files.readAllBytes(javaFile));
+        if (scanned == null) {
+            return parsed;
+        }
+        return parsed != null
+            ? scanned.withReferences(parsed.getReferencedTypes(), parsed.getAnnotations(), parsed.hasMainMethod())
+            : scanned.withReferences(new String[0], new String[0], false);
+    }
+
+    // The only place a file is parsed; everything later works from the summary
+    static FileSummary summarize(Path javaFile, byte[] content) {
+        CompilationUnit cu = PARSER.get().parse(new String(content, StandardCharsets.UTF_8))
+            .getResult().orElse(null);
+        if (cu == null) {
+            return null;
+        }
+        // Primary type lookup goes by file name
+        cu.setStorage(javaFile);
+        return describe(cu, javaFile, ReferenceCollector.collect(cu));
+    }
+
+    // The summary of a parsed file, with references extracted by the caller
+    static FileSummary describe(CompilationUnit cu, Path javaFile, String[] referencedTypes) {
+        String packageName = cu.getPackageDeclaration()
+            .map(pkg -> pkg.getNameAsString())
+            .orElse("");
+
+        String[] imports = cu.getImports().stream()
+            .filter(imp -> !imp.isStatic())
+            .map(imp -> imp.isAsterisk() ? imp.getNameAsString() + ".*" : imp.getNameAsString())
+            .toArray(String[]::new);
+
+        // Local types have no name outside their block, as in the scanner
+        String[] declaredTypes = cu.findAll(TypeDeclaration.class).stream()
+            .<TypeDeclaration<?>>map(type -> type)
+            .filter(type -> !isLocal(type))
+            .map(type -> type.getFullyQualifiedName().orElse(""))
+            .filter(className -> !className.isEmpty())
+            .toArray(String[]::new);
+
+        String primaryType = cu.getPrimaryType()
+            .map(type -> type.getFullyQualifiedName().orElse(""))
+            .filter(className -> !className.isEmpty())
+            .orElse(null);
+
+        // Entry point hints for tree shaking
+        String[] annotations = cu.findAll(AnnotationExpr.class).stream()
+            .filter(annotation -> annotation.getParentNode().filter(BodyDeclaration.class::isInstance).isPresent())
+            .map(annotation -> annotation.getNameAsString())
+            .distinct()
+            .toArray(String[]::new);
+        boolean mainMethod = cu.findAll(MethodDeclaration.class).stream()
+            .anyMatch(ClassDependencyAnalyzer::isMainMethod);
+
+        return new FileSummary(javaFile, packageName, imports, declaredTypes,
+            primaryType, referencedTypes, annotations, mainMethod);
+    }
+
+    private static boolean isLocal(TypeDeclaration<?> type) {
+        return type.isClassOrInterfaceDeclaration() && type.asClassOrInterfaceDeclaration().isLocalClassDeclaration()
+            || type.isRecordDeclaration() && type.asRecordDeclaration().isLocalRecordDeclaration();
+    }
+
+    private static boolean isMainMethod(MethodDeclaration method) {
+        if (!method.getNameAsString().equals("main") || !method.isPublic() || !method.isStatic()
+                || !method.getType().isVoidType() || method.getParameters().size() != 1) {
             return false;
-        });
+        }
+        Parameter parameter = method.getParameter(0);
+        String type = parameter.getType().asString();
+        return parameter.isVarArgs() ? type.equals("String") || type.equals("java.lang.String")
+            : type.equals("String[]") || type.equals("java.lang.String[]");
     }
 
-    private void findDeletionPaths(String className, Set<String> targetClasses, 
-            Map<String, Set<String>> reverseDependencies, List<String> currentPath) {
-        currentPath.add(className);
-        
-        Set<String> users = reverseDependencies.getOrDefault(className, new HashSet<>());
-        if (users.isEmpty() || targetClasses.contains(className)) {
-            if (targetClasses.contains(className)) {
-                log("  " + String.join(" -> ", currentPath));
+    // A source file on its way through the extraction pipeline
+    private static final class FileWork {
+        FileSummary summary;
+        byte[] content;
+        boolean extracted;
+        // Set when the file could not be read; the work item is then dropped
+        IOException readFailure;
+        int owner = -1;
+        int[] dependencies;
+
+        FileWork(FileSummary summary) {
+            this.summary = summary;
+        }
+    }
+
+    /*
+     * Sets the worker threads and input queue depth of one extraction stage:
+     * "read", "parse", "extract" or "merge". Merge always runs on one thread.
+     */
+    public void configureStage(String stage, int threads, int queueDepth) {
+        if (!stageConfigs.containsKey(stage)) {
+            throw new IllegalArgumentException("Unknown pipeline stage: " + stage);
+        }
+        if (stage.equals("merge") && threads != 1) {
+            throw new IllegalArgumentException("The merge stage is single-threaded");
+        }
+        stageConfigs.put(stage, new Pipeline.StageConfig(threads, queueDepth));
+    }
+
+    private void buildDependencyGraph() throws IOException {
+        int totalFiles = summaries.size();
+
+        // First pass: index declared classes. Resolution needs all of them,
+        // so this is the one barrier between discovery and extraction.
+        for (FileSummary summary : summaries) {
+            for (String className : summary.getDeclaredTypes()) {
+                allClasses.add(className);
+                classToPathMap.put(className, summary.getPath());
             }
-        } else {
-            for (String user : users) {
-                if (!currentPath.contains(user)) {  // Avoid cycles
-                    findDeletionPaths(user, targetClasses, reverseDependencies, currentPath);
+        }
+        typeIndex = new TypeIndex(allClasses);
+        if (symbolSolving && !bytecodeInput) {
+            symbols = new SymbolResolution(summaries, allClasses);
+            log("Symbol solver source roots: " + symbols.getSourceRoots());
+        }
+        String[] names = ClassGraph.sortedNames(allClasses);
+        int[][] adjacency = new int[names.length][];
+
+        // Second pass: parse what is not known yet and resolve references into edges
+        int[] processedFiles = new int[1];
+        List<FileSummary> complete = new ArrayList<>(totalFiles);
+        List<IOException> readFailures = new ArrayList<>();
+        Pipeline<FileWork> pipeline = new Pipeline<FileWork>("extraction")
+            .stage("read", stageConfigs.get("read"), this::readContent)
+            .stage("parse", stageConfigs.get("parse"), this::parseReferences)
+            .stage("extract", stageConfigs.get("extract"), work -> resolveDependencies(work, names))
+            .stage("merge", stageConfigs.get("merge"), work -> {
+                updateProgress(++processedFiles[0], totalFiles);
+                if (work.readFailure != null) {
+                    readFailures.add(work.readFailure);
+                    return null;
+                }
+                if (work.owner >= 0) {
+                    adjacency[work.owner] = work.dependencies;
                 }
+                if (work.extracted && cache != null) {
+                    cache.store(work.summary);
+                }
+                complete.add(work.summary);
+                return null;
+            });
+        try {
+            pipeline.run(() -> summaries.stream().map(FileWork::new).iterator());
+        } finally {
+            if (symbols != null) {
+                log(symbols.report());
+                symbols.close();
+                symbols = null;
             }
         }
-        
-        currentPath.remove(currentPath.size() - 1);
+        pipeline.report().forEach(this::log);
+        failIfUnread(readFailures);
+        summaries.clear();
+        summaries.addAll(complete);
+
+        dependencyGraph = ClassGraph.build(names, adjacency);
+        logProgress("Done");
     }
 
-    private Map<String, Set<String>> buildReverseDependencyGraph() {
-        Map<String, Set<String>> reverseDependencies = new HashMap<>();
-        for (Map.Entry<String, Set<String>> entry : dependencyGraph.entrySet()) {
-            String className = entry.getKey();
-            for (String dependency : entry.getValue()) {
-                reverseDependencies.computeIfAbsent(dependency, k -> new HashSet<>())
-                    .add(className);
+    // Files without a primary type contribute no edges, so they are never read
+    private FileWork readContent(FileWork work) {
+        FileSummary summary = work.summary;
+        if (summary.getReferencedTypes() == null && summary.getPrimaryType() != null) {
+            try {
+                work.content = Files.readAllBytes(summary.getPath());
+            } catch (IOException e) {
+                logger.log(LogLevel.ERROR, "Cannot read " + summary.getPath() + ": " + e);
+                work.readFailure = e;
             }
         }
-        return reverseDependencies;
+        return work;
     }
 
-    private void findAllDependencies(String className, Set<String> allDependencies, Set<String> visited) {
-        if (visited.contains(className)) return;
-        visited.add(className);
+    private FileWork parseReferences(FileWork work) {
+        if (work.readFailure != null || work.summary.getReferencedTypes() != null) {
+            return work;
+        }
+        FileSummary parsed = null;
+        if (work.content != null) {
+            long start = System.nanoTime();
+            parsed = symbols != null
+                ? symbols.summarize(work.summary.getPath(), work.content)
+                : summarize(work.summary.getPath(), work.content);
+            profile.parsed(work.summary.getPath(), System.nanoTime() - start);
+        }
+        work.summary = parsed != null
+            ? work.summary.withReferences(parsed.getReferencedTypes(), parsed.getAnnotations(), parsed.hasMainMethod())
+            : work.summary.withReferences(new String[0], new String[0], false);
+        work.content = null;
+        work.extracted = true;
+        return work;
+    }
 
-        Set<String> directDependencies = dependencyGraph.getOrDefault(className, new HashSet<>());
-        allDependencies.addAll(directDependencies);
+    private FileWork resolveDependencies(FileWork work, String[] names) {
+        String className = work.summary.getPrimaryType();
+        if (className == null || work.readFailure != null) {
+            return work;
+        }
+        long start = System.nanoTime();
+        work.owner = ClassGraph.indexOf(names, className);
+        work.dependencies = resolve(scopeOf(work.summary), names, work.summary);
+        profile.resolved(System.nanoTime() - start);
+        return work;
+    }
 
-        for (String dependency : directDependencies) {
-            findAllDependencies(dependency, allDependencies, visited);
+    // In reactor mode a file only sees its own module and the modules it depends on
+    private TypeIndex.Scope scopeOf(FileSummary summary) {
+        Reactor.Module module = moduleOfClass != null ? moduleOfClass.get(summary.getPrimaryType()) : null;
+        if (module == null) {
+            return typeIndex.scopeOf(summary);
         }
+        return typeIndex.scopeOf(summary, className -> {
+            Reactor.Module declaring = moduleOfClass.get(className);
+            return declaring == null || module.sees(declaring);
+        });
     }
 
-    private void deleteClasses(String rootPath) throws IOException {
+    // Sorted ids of the classes a file's primary type depends on
+    static int[] resolve(TypeIndex typeIndex, String[] names, FileSummary summary) {
+        return resolve(typeIndex.scopeOf(summary), names, summary);
+    }
+
+    static int[] resolve(TypeIndex.Scope scope, String[] names, FileSummary summary) {
+        BitSet dependencies = new BitSet();
+        for (String typeName : summary.getReferencedTypes()) {
+            String dependency = scope.resolve(typeName);
+            if (dependency != null) {
+                dependencies.set(ClassGraph.indexOf(names, dependency));
+            }
+        }
+        // A class mentioning itself is not a user of itself
+        if (summary.getPrimaryType() != null) {
+            int self = ClassGraph.indexOf(names, summary.getPrimaryType());
+            if (self >= 0) {
+                dependencies.clear(self);
+            }
+        }
+        return dependencies.stream().toArray();
+    }
+
+    // Classes of this tool are never deleted, even when the cascade reaches them
+    static boolean isProtected(String className) {
+        return className.startsWith("com.example.tools.");
+    }
+
+    private void logPlan(DeletionPlan plan) {
+        ClassGraph graph = plan.snapshot().graph();
+        DeletionCascade cascade = plan.cascade();
+        BitSet targets = cascade.targets();
+        for (int id = targets.nextSetBit(0); id >= 0; id = targets.nextSetBit(id + 1)) {
+            log("Target class: " + graph.name(id));
+        }
+
+        profile.count("targets", targets.cardinality());
+        profile.count("candidates", cascade.candidates().cardinality());
+        profile.count("cascadeRounds", cascade.rounds());
+        profile.count("cascadeDeleted", cascade.count());
+
+        for (int i = 0; i < cascade.count(); i++) {
+            int id = cascade.at(i);
+            log("\nDependent class: " + graph.name(id));
+            log("Deletion paths:");
+            if (maxDeletionPaths == 1) {
+                log("  " + String.join(" -> ", plan.getReason(graph.name(id))));
+            } else {
+                findDeletionPaths(graph, id, targets, new ArrayList<>(), new BitSet(graph.size()), maxDeletionPaths);
+            }
+        }
+
+        for (String className : plan.getProtectedClasses()) {
+            log("Keeping tool class: " + className);
+        }
+    }
+
+    // 1 (the default) logs a single shortest path per class
+    public void setMaxDeletionPaths(int maxDeletionPaths) {
+        if (maxDeletionPaths < 1) {
+            throw new IllegalArgumentException("maxDeletionPaths must be at least 1");
+        }
+        this.maxDeletionPaths = maxDeletionPaths;
+    }
+
+    // Enumerates simple paths back to a target; returns how many more may still be logged
+    private int findDeletionPaths(ClassGraph graph, int id, BitSet targets,
+            List<String> currentPath, BitSet onPath, int remaining) {
+        currentPath.add(graph.name(id));
+        onPath.set(id);
+        
+        if (graph.userCount(id) == 0 || targets.get(id)) {
+            if (targets.get(id)) {
+                log("  " + String.join(" -> ", currentPath));
+                remaining--;
+            }
+        } else {
+            for (int e = graph.userStart(id); e < graph.userEnd(id) && remaining > 0; e++) {
+                int user = graph.userAt(e);
+                if (!onPath.get(user)) {  // Avoid cycles
+                    remaining = findDeletionPaths(graph, user, targets, currentPath, onPath, remaining);
+                }
+            }
+        }
+        
+        onPath.clear(id);
+        currentPath.remove(currentPath.size() - 1);
+        return remaining;
+    }
+
+    /*
+     * Deletes the source files of a plan. Classes without a source file
+     * (bytecode mode) are only logged.
+     */
+    public void delete(DeletionPlan plan) {
+        // Nested classes share their file with the outer class; each file is deleted once
+        Map<Path, String> files = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> entry : plan.getDeletableClasses().entrySet()) {
+            files.putIfAbsent(entry.getValue(), entry.getKey());
+        }
         ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
         try {
             AtomicInteger processedFiles = new AtomicInteger(0);
-            int totalFiles = classesToDelete.size();
+            int totalFiles = files.size();
 
-            List<CompletableFuture<Void>> deleteFutures = classesToDelete.entrySet().stream()
+            List<CompletableFuture<Void>> deleteFutures = files.entrySet().stream()
                 .map(entry -> CompletableFuture.runAsync(() -> {
                     try {
-                        Path classFile = Paths.get(entry.getValue());
-                        if (Files.exists(classFile)) {
-                            Files.delete(classFile);
+                        Path classFile = entry.getKey();
+                        if (!classFile.toString().endsWith(".java")) {
+                            log("Not deleting class without source: " + entry.getValue());
+                        } else if (Files.deleteIfExists(classFile)) {
                             updateProgress(processedFiles.incrementAndGet(), totalFiles);
                         }
                     } catch (IOException e) {
@@ -327,9 +924,8 @@ public class ClassDependencyAnalyzer {
         }
     }
 
-    private synchronized void updateProgress(int current, int total) {
-        int percentage = (int) ((current * 100.0) / total);
-        logProgress(String.format("Progress: %d%% (%d/%d)", percentage, current, total));
+    private void updateProgress(int current, int total) {
+        logger.progress(current, total);
     }
 
     private void shutdownExecutor(ExecutorService executor) {
@@ -344,124 +940,9 @@ public class ClassDependencyAnalyzer {
         }
     }
 
-    private static class DependencyVisitor extends VoidVisitorAdapter<Void> {
-        private final Set<String> dependencies = new HashSet<>();
-        private String currentPackage = "";
-        private final Set<String> allClasses;
-
-        public DependencyVisitor(Set<String> allClasses) {
-            this.allClasses = allClasses;
-        }
-
-        @Override
-        public void visit(CompilationUnit n, Void arg) {
-            n.getPackageDeclaration().ifPresent(pkg -> 
-                currentPackage = pkg.getNameAsString());
-            super.visit(n, arg);
-        }
-
-        @Override
-        public void visit(ClassOrInterfaceDeclaration n, Void arg) {
-            // Collect field declarations
-            n.getFields().forEach(field -> {
-                // Get field type
-                String fieldType = field.getElementType().asString();
-                addDependency(fieldType);
-
-                // Get types from field initialization
-                field.getVariables().forEach(var -> {
-                    // Add variable type
-                    addDependency(var.getType().asString());
-                    
-                    // Check initialization expressions
-                    var.getInitializer().ifPresent(init -> {
-                        init.findAll(com.github.javaparser.ast.expr.ObjectCreationExpr.class)
-                            .forEach(expr -> addDependency(expr.getType().asString()));
-                        init.findAll(com.github.javaparser.ast.expr.NameExpr.class)
-                            .forEach(expr -> addDependency(expr.getNameAsString()));
-                    });
-                });
-            });
-
-            // Collect method dependencies
-            n.getMethods().forEach(method -> {
-                // Method return type
-                addDependency(method.getType().asString());
-                
-                // Method parameter types
-                method.getParameters().forEach(param -> 
-                    addDependency(param.getType().asString()));
-
-                // Type references in method body
-                method.getBody().ifPresent(body -> {
-                    // Collect types from method calls
-                    body.findAll(com.github.javaparser.ast.expr.MethodCallExpr.class)
-                        .forEach(call -> {
-                            if (call.getScope().isPresent()) {
-                                addDependency(call.getScope().get().toString());
-                            }
-                        });
-
-                    // Collect object creation expressions
-                    body.findAll(com.github.javaparser.ast.expr.ObjectCreationExpr.class)
-                        .forEach(expr -> addDependency(expr.getType().asString()));
-
-                    // Collect types from variable declarations
-                    body.findAll(com.github.javaparser.ast.expr.VariableDeclarationExpr.class)
-                        .forEach(var -> var.getVariables().forEach(v -> 
-                            addDependency(v.getType().asString())));
-                });
-            });
-
-            super.visit(n, arg);
-        }
-
-        private void addDependency(String typeName) {
-            if (typeName == null || typeName.isEmpty() || 
-                typeName.equals("void") || isPrimitiveType(typeName)) {
-                return;
-            }
-
-            if (typeName.startsWith("java.") || typeName.startsWith("javax.")) {
-                return;
-            }
-
-            if (!typeName.contains(".")) {
-                for (String fullClassName : allClasses) {
-                    if (fullClassName.endsWith("." + typeName)) {
-                        dependencies.add(fullClassName);
-                        return;
-                    }
-                }
-                return;
-            }
-
-            // Only add if class exists in project
-            if (allClasses.contains(typeName)) {
-                dependencies.add(typeName);
-            }
-        }
-
-        private boolean isPrimitiveType(String typeName) {
-            return typeName.equals("int") || typeName.equals("long") || 
-                   typeName.equals("double") || typeName.equals("float") ||
-                   typeName.equals("boolean") || typeName.equals("byte") ||
-                   typeName.equals("char") || typeName.equals("short");
-        }
-
-        public Set<String> getDependencies() {
-            return dependencies;
-        }
-    }
-
+    // Flushes and closes the analysis log
     @Override
-    protected void finalize() throws Throwable {
-        try {
-            if (logWriter != null) {
-                logWriter.close();
-            }
-        } finally {
-            super.finalize();
-        }
+    public void close() {
+        logger.close();
     }
-} 
\ No newline at end of file
+}
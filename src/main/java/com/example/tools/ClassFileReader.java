@@ -0,0 +1,378 @@
+package com.example.tools;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Minimal class file reader that collects every class a compiled class
+ * refers to: constant pool class entries, field/method/member descriptors,
+ * generic signatures, annotation types and values, and local variable
+ * tables. Method bodies are not decoded; their references all go through
+ * the constant pool. Class names are returned in internal form
+ * ({@code a/b/Outer$Inner}).
+ */
+final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final ByteBuffer in;
+    private int[] offsets;
+    private byte[] tags;
+    private String[] utf8;
+    private final Set<String> references = new LinkedHashSet<>();
+    private final Set<String> annotations = new LinkedHashSet<>();
+    private boolean mainMethod;
+
+    private String className;
+    private String sourceFile;
+
+    private ClassFileReader(ByteBuffer in) {
+        this.in = in;
+    }
+
+    static ClassFileReader read(ByteBuffer buffer) {
+        ClassFileReader reader = new ClassFileReader(buffer);
+        reader.parse();
+        return reader;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    // Value of the SourceFile attribute, or null if compiled without it
+    String getSourceFile() {
+        return sourceFile;
+    }
+
+    Set<String> getReferences() {
+        return references;
+    }
+
+    // Annotation types used anywhere in the class, as dotted names
+    Set<String> getAnnotations() {
+        return annotations;
+    }
+
+    boolean hasMainMethod() {
+        return mainMethod;
+    }
+
+    private void parse() {
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        in.getShort(); // minor
+        in.getShort(); // major
+        readConstantPool();
+
+        in.getShort(); // access flags
+        className = className(u2());
+        int superClass = u2();
+        if (superClass != 0) {
+            addClass(className(superClass));
+        }
+        int interfaces = u2();
+        for (int i = 0; i < interfaces; i++) {
+            addClass(className(u2()));
+        }
+        readMembers(false); // fields
+        readMembers(true);  // methods
+        readAttributes();
+    }
+
+    private void readConstantPool() {
+        int count = u2();
+        offsets = new int[count];
+        tags = new byte[count];
+        utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            byte tag = in.get();
+            tags[i] = tag;
+            offsets[i] = in.position();
+            switch (tag) {
+                case 1: { // Utf8
+                    int length = u2();
+                    in.position(in.position() + length);
+                    break;
+                }
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.position(in.position() + 2);
+                    break;
+                case 15: // MethodHandle
+                    in.position(in.position() + 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.position(in.position() + 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.position(in.position() + 8);
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        // Class entries and every descriptor reachable from the pool
+        for (int i = 1; i < count; i++) {
+            switch (tags[i]) {
+                case 7:
+                    addClass(utf8(in.getShort(offsets[i]) & 0xFFFF));
+                    break;
+                case 12:
+                    addSignature(utf8(in.getShort(offsets[i] + 2) & 0xFFFF));
+                    break;
+                case 16:
+                    addSignature(utf8(in.getShort(offsets[i]) & 0xFFFF));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void readMembers(boolean methods) {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            int access = u2();
+            String name = utf8(u2());
+            String descriptor = utf8(u2());
+            // ACC_PUBLIC | ACC_STATIC
+            if (methods && (access & 0x0009) == 0x0009 && name.equals("main")
+                    && descriptor.equals("([Ljava/lang/String;)V")) {
+                mainMethod = true;
+            }
+            addSignature(descriptor);
+            readAttributes();
+        }
+    }
+
+    private void readAttributes() {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            String name = utf8(u2());
+            int length = in.getInt();
+            int end = in.position() + length;
+            switch (name) {
+                case "SourceFile":
+                    sourceFile = utf8(u2());
+                    break;
+                case "Signature":
+                    addSignature(utf8(u2()));
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    readAnnotations();
+                    break;
+                case "RuntimeVisibleParameterAnnotations":
+                case "RuntimeInvisibleParameterAnnotations": {
+                    int parameters = in.get() & 0xFF;
+                    for (int p = 0; p < parameters; p++) {
+                        readAnnotations();
+                    }
+                    break;
+                }
+                case "AnnotationDefault":
+                    readElementValue();
+                    break;
+                case "Code": {
+                    in.position(in.position() + 4); // max stack, max locals
+                    int codeLength = in.getInt();
+                    in.position(in.position() + codeLength);
+                    int exceptions = u2();
+                    in.position(in.position() + exceptions * 8); // catch types are pool classes
+                    readAttributes();
+                    break;
+                }
+                case "LocalVariableTable":
+                case "LocalVariableTypeTable": {
+                    int entries = u2();
+                    for (int e = 0; e < entries; e++) {
+                        in.position(in.position() + 6); // start, length, name
+                        addSignature(utf8(u2()));
+                        in.getShort(); // slot
+                    }
+                    break;
+                }
+                case "Record": {
+                    int components = u2();
+                    for (int c = 0; c < components; c++) {
+                        in.getShort(); // name
+                        addSignature(utf8(u2()));
+                        readAttributes();
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+            in.position(end);
+        }
+    }
+
+    private void readAnnotations() {
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            readAnnotation();
+        }
+    }
+
+    private void readAnnotation() {
+        String type = utf8(u2());
+        if (type.startsWith("L") && type.endsWith(";")) {
+            annotations.add(type.substring(1, type.length() - 1).replace('/', '.').replace('$', '.'));
+        }
+        addSignature(type);
+        int pairs = u2();
+        for (int i = 0; i < pairs; i++) {
+            in.getShort(); // element name
+            readElementValue();
+        }
+    }
+
+    private void readElementValue() {
+        char tag = (char) (in.get() & 0xFF);
+        switch (tag) {
+            case 'e':
+                addSignature(utf8(u2()));
+                in.getShort(); // constant name
+                break;
+            case 'c':
+                addSignature(utf8(u2()));
+                break;
+            case '@':
+                readAnnotation();
+                break;
+            case '[': {
+                int values = u2();
+                for (int i = 0; i < values; i++) {
+                    readElementValue();
+                }
+                break;
+            }
+            default:
+                in.getShort(); // constant value index
+                break;
+        }
+    }
+
+    private String className(int index) {
+        return utf8(in.getShort(offsets[index]) & 0xFFFF);
+    }
+
+    private void addClass(String internalName) {
+        if (internalName.startsWith("[")) {
+            addSignature(internalName);
+        } else {
+            references.add(internalName);
+        }
+    }
+
+    // Field, method and generic signatures share the L...; class type syntax
+    private void addSignature(String signature) {
+        int i = 0;
+        if (signature.startsWith("<")) {
+            i = skipFormalTypeParameters(signature, 1);
+        }
+        while (i < signature.length()) {
+            i = parseType(signature, i);
+        }
+    }
+
+    private int skipFormalTypeParameters(String s, int i) {
+        while (i < s.length() && s.charAt(i) != '>') {
+            i = s.indexOf(':', i); // identifier
+            if (i < 0) {
+                return s.length();
+            }
+            while (i < s.length() && s.charAt(i) == ':') {
+                i++;
+                if (i < s.length() && s.charAt(i) != ':' && s.charAt(i) != '>') {
+                    i = parseType(s, i);
+                }
+            }
+        }
+        return i + 1;
+    }
+
+    // Returns the index after the type (or single character) at i
+    private int parseType(String s, int i) {
+        char c = s.charAt(i);
+        if (c == 'T') {
+            int end = s.indexOf(';', i);
+            return end < 0 ? s.length() : end + 1;
+        }
+        if (c != 'L') {
+            return i + 1;
+        }
+        StringBuilder name = new StringBuilder();
+        i++;
+        while (i < s.length()) {
+            c = s.charAt(i);
+            if (c == ';') {
+                references.add(name.toString());
+                return i + 1;
+            } else if (c == '<') {
+                i++;
+                while (i < s.length() && s.charAt(i) != '>') {
+                    i = parseType(s, i);
+                }
+                i++;
+            } else if (c == '.') {
+                references.add(name.toString());
+                name.append('$');
+                i++;
+            } else {
+                name.append(c);
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private int u2() {
+        return in.getShort() & 0xFFFF;
+    }
+
+    // Decodes modified UTF-8 lazily, once per entry
+    private String utf8(int index) {
+        String value = utf8[index];
+        if (value != null) {
+            return value;
+        }
+        int pos = offsets[index];
+        int length = in.getShort(pos) & 0xFFFF;
+        pos += 2;
+        int end = pos + length;
+        char[] chars = new char[length];
+        int n = 0;
+        while (pos < end) {
+            int b = in.get(pos++) & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[n++] = (char) (((b & 0x1F) << 6) | (in.get(pos++) & 0x3F));
+            } else {
+                int b2 = in.get(pos++) & 0x3F;
+                int b3 = in.get(pos++) & 0x3F;
+                chars[n++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+            }
+        }
+        value = new String(chars, 0, n);
+        utf8[index] = value;
+        return value;
+    }
+}
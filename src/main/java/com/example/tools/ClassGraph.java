@@ -0,0 +1,131 @@
+package com.example.tools;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Dependency graph over dense int IDs. Class names are sorted once so an ID
+ * is the name's position; forward ("uses") and reverse ("used by")
+ * adjacency are kept in CSR form: the neighbours of node {@code i} are
+ * {@code targets[offsets[i]] .. targets[offsets[i + 1] - 1]}.
+ */
+final class ClassGraph {
+    private final String[] names;
+    private final int[] forwardOffsets;
+    private final int[] forwardTargets;
+    private final int[] reverseOffsets;
+    private final int[] reverseTargets;
+
+    private ClassGraph(String[] names, int[] forwardOffsets, int[] forwardTargets,
+            int[] reverseOffsets, int[] reverseTargets) {
+        this.names = names;
+        this.forwardOffsets = forwardOffsets;
+        this.forwardTargets = forwardTargets;
+        this.reverseOffsets = reverseOffsets;
+        this.reverseTargets = reverseTargets;
+    }
+
+    static String[] sortedNames(Collection<String> classNames) {
+        String[] names = classNames.toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    static int indexOf(String[] sortedNames, String className) {
+        int id = Arrays.binarySearch(sortedNames, className);
+        return id >= 0 ? id : -1;
+    }
+
+    /**
+     * Builds both directions from per-node dependency lists. {@code adjacency[i]}
+     * may be null for nodes without outgoing edges; each list must be free of
+     * duplicates.
+     */
+    static ClassGraph build(String[] names, int[][] adjacency) {
+        int nodeCount = names.length;
+
+        int[] forwardOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            forwardOffsets[i + 1] = forwardOffsets[i] + (adjacency[i] == null ? 0 : adjacency[i].length);
+        }
+        int edgeCount = forwardOffsets[nodeCount];
+        int[] forwardTargets = new int[edgeCount];
+
+        AtomicIntegerArray inDegree = new AtomicIntegerArray(nodeCount);
+        IntStream.range(0, nodeCount).parallel().forEach(i -> {
+            int[] deps = adjacency[i];
+            if (deps != null) {
+                System.arraycopy(deps, 0, forwardTargets, forwardOffsets[i], deps.length);
+                for (int dep : deps) {
+                    inDegree.incrementAndGet(dep);
+                }
+            }
+        });
+
+        int[] reverseOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            reverseOffsets[i + 1] = reverseOffsets[i] + inDegree.get(i);
+        }
+        int[] reverseTargets = new int[edgeCount];
+        AtomicIntegerArray cursor = new AtomicIntegerArray(Arrays.copyOf(reverseOffsets, nodeCount));
+        IntStream.range(0, nodeCount).parallel().forEach(i -> {
+            for (int e = forwardOffsets[i]; e < forwardOffsets[i + 1]; e++) {
+                reverseTargets[cursor.getAndIncrement(forwardTargets[e])] = i;
+            }
+        });
+        // Fill order depends on scheduling; sort each segment so results are stable
+        IntStream.range(0, nodeCount).parallel().forEach(i -> {
+            Arrays.sort(forwardTargets, forwardOffsets[i], forwardOffsets[i + 1]);
+            Arrays.sort(reverseTargets, reverseOffsets[i], reverseOffsets[i + 1]);
+        });
+
+        return new ClassGraph(names, forwardOffsets, forwardTargets, reverseOffsets, reverseTargets);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    int edgeCount() {
+        return forwardTargets.length;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    // -1 if the class is not part of the graph
+    int id(String className) {
+        return indexOf(names, className);
+    }
+
+    int dependencyStart(int id) {
+        return forwardOffsets[id];
+    }
+
+    int dependencyEnd(int id) {
+        return forwardOffsets[id + 1];
+    }
+
+    int dependencyAt(int index) {
+        return forwardTargets[index];
+    }
+
+    int userStart(int id) {
+        return reverseOffsets[id];
+    }
+
+    int userEnd(int id) {
+        return reverseOffsets[id + 1];
+    }
+
+    int userAt(int index) {
+        return reverseTargets[index];
+    }
+
+    int userCount(int id) {
+        return reverseOffsets[id + 1] - reverseOffsets[id];
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lexical scanner that pulls the package, imports and type declarations out
+ * of a source file without building an AST. Comments, string, char and text
+ * block literals are skipped; braces are only tracked to know which type a
+ * nested declaration belongs to. Anything it is not sure about (unicode
+ * escapes, unbalanced braces, unterminated literals) yields null so the
+ * caller can fall back to the full parser.
+ */
+final class DeclarationScanner {
+    private static final ThreadLocal<DeclarationScanner> SCANNER =
+        ThreadLocal.withInitial(DeclarationScanner::new);
+
+    private static final byte IDENT = 0;
+    private static final byte SYMBOL = 1;
+    private static final byte OTHER = 2; // numbers and literals
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+    private CharBuffer chars = CharBuffer.allocate(1 << 16);
+
+    // Token table for the current file, reused between files
+    private char[] src;
+    private int[] starts = new int[1 << 12];
+    private int[] ends = new int[1 << 12];
+    private byte[] kinds = new byte[1 << 12];
+    private int count;
+
+    private DeclarationScanner() {
+    }
+
+    // Summary without referenced types, or null if the parser has to handle the file
+    static FileSummary scan(Path javaFile) throws IOException {
+        return SCANNER.get().scanFile(javaFile);
+    }
+
+    private FileSummary scanFile(Path javaFile) throws IOException {
+        if (!read(javaFile) || !tokenize()) {
+            return null;
+        }
+
+        String fileName = javaFile.getFileName().toString();
+        String primaryName = fileName.endsWith(".java") ? fileName.substring(0, fileName.length() - 5) : fileName;
+
+        String packageName = "";
+        List<String> imports = new ArrayList<>();
+        List<String> declaredTypes = new ArrayList<>();
+        String primaryType = null;
+
+        // Enclosing named types and the brace depth their bodies opened at. Local
+        // types (and anything inside them) have no FQN and are kept as null.
+        List<String> scopeNames = new ArrayList<>();
+        List<Integer> scopeDepths = new ArrayList<>();
+        // Open parentheses per brace level, so a body inside a lambda argument still counts
+        int[] parens = new int[16];
+        // Set between a type's name and the brace opening its body
+        String headerType = null;
+        boolean inHeader = false;
+        int depth = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (depth == 0 && !inHeader && (is(i, "package") || is(i, "import")) && !isSymbol(i - 1, '.')) {
+                boolean isImport = is(i, "import");
+                boolean isStatic = isImport && is(i + 1, "static");
+                int end = isStatic ? i + 2 : i + 1;
+                StringBuilder name = new StringBuilder();
+                while (end < count && !isSymbol(end, ';')) {
+                    if (kinds[end] != IDENT && !isSymbol(end, '.') && !isSymbol(end, '*')) {
+                        return null;
+                    }
+                    name.append(src, starts[end], ends[end] - starts[end]);
+                    end++;
+                }
+                if (end == count || name.length() == 0) {
+                    return null;
+                }
+                if (!isImport) {
+                    packageName = name.toString();
+                } else if (!isStatic) {
+                    imports.add(name.toString());
+                }
+                i = end;
+                continue;
+            }
+
+            if (isSymbol(i, '@')) {
+                if (is(i + 1, "interface")) {
+                    if (i + 2 >= count || kinds[i + 2] != IDENT || inHeader) {
+                        return null;
+                    }
+                    String simpleName = text(i + 2);
+                    headerType = declare(simpleName, scopeNames, scopeDepths, depth, packageName);
+                    inHeader = true;
+                    primaryType = record(headerType, simpleName, primaryName, primaryType, scopeNames, declaredTypes);
+                    i += 2;
+                } else {
+                    i = skipAnnotation(i + 1) - 1;
+                }
+                continue;
+            }
+
+            if (kinds[i] == IDENT && !inHeader && !isSymbol(i - 1, '.')) {
+                boolean typeKeyword = is(i, "class") || is(i, "interface") || is(i, "enum")
+                    || (is(i, "record") && i + 2 < count && kinds[i + 1] == IDENT
+                        && (isSymbol(i + 2, '(') || isSymbol(i + 2, '<')));
+                if (typeKeyword) {
+                    if (i + 1 >= count || kinds[i + 1] != IDENT) {
+                        return null;
+                    }
+                    String simpleName = text(i + 1);
+                    headerType = declare(simpleName, scopeNames, scopeDepths, depth, packageName);
+                    inHeader = true;
+                    primaryType = record(headerType, simpleName, primaryName, primaryType, scopeNames, declaredTypes);
+                    i++;
+                    continue;
+                }
+            }
+
+            if (kinds[i] != SYMBOL) {
+                continue;
+            }
+            switch (src[starts[i]]) {
+                case '(':
+                    parens[depth]++;
+                    break;
+                case ')':
+                    parens[depth]--;
+                    break;
+                case '{':
+                    if (inHeader && parens[depth] == 0) {
+                        scopeNames.add(headerType);
+                        scopeDepths.add(depth + 1);
+                        headerType = null;
+                        inHeader = false;
+                    }
+                    if (++depth == parens.length) {
+                        parens = Arrays.copyOf(parens, depth * 2);
+                    }
+                    parens[depth] = 0;
+                    break;
+                case '}':
+                    if (!scopeDepths.isEmpty() && scopeDepths.get(scopeDepths.size() - 1) == depth) {
+                        scopeNames.remove(scopeNames.size() - 1);
+                        scopeDepths.remove(scopeDepths.size() - 1);
+                    }
+                    if (parens[depth] != 0 || --depth < 0) {
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (depth != 0 || parens[0] != 0 || inHeader) {
+            return null;
+        }
+        return new FileSummary(javaFile, packageName, imports.toArray(new String[0]),
+            declaredTypes.toArray(new String[0]), primaryType, null, null, false);
+    }
+
+    // Adds a named type to the declarations; returns the primary type, which it may be
+    private static String record(String type, String simpleName, String primaryName, String primaryType,
+            List<String> scopeNames, List<String> declaredTypes) {
+        if (type == null) {
+            return primaryType;
+        }
+        declaredTypes.add(type);
+        return scopeNames.isEmpty() && primaryType == null && simpleName.equals(primaryName) ? type : primaryType;
+    }
+
+    // FQN of a type declared at the given depth, or null for a local type
+    private static String declare(String simpleName, List<String> scopeNames, List<Integer> scopeDepths,
+            int depth, String packageName) {
+        if (scopeNames.isEmpty()) {
+            if (depth != 0) {
+                return null;
+            }
+            return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        }
+        String enclosing = scopeNames.get(scopeNames.size() - 1);
+        if (enclosing == null || scopeDepths.get(scopeDepths.size() - 1) != depth) {
+            return null;
+        }
+        return enclosing + "." + simpleName;
+    }
+
+    // Index of the first token after an annotation starting at its name
+    private int skipAnnotation(int i) {
+        while (i < count && kinds[i] == IDENT) {
+            i++;
+            if (!isSymbol(i, '.')) {
+                break;
+            }
+            i++;
+        }
+        if (isSymbol(i, '(')) {
+            int parens = 0;
+            do {
+                if (isSymbol(i, '(')) {
+                    parens++;
+                } else if (isSymbol(i, ')')) {
+                    parens--;
+                }
+                i++;
+            } while (parens > 0 && i < count);
+        }
+        return i;
+    }
+
+    private boolean is(int i, String keyword) {
+        if (i < 0 || i >= count || kinds[i] != IDENT || ends[i] - starts[i] != keyword.length()) {
+            return false;
+        }
+        for (int j = 0; j < keyword.length(); j++) {
+            if (src[starts[i] + j] != keyword.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSymbol(int i, char symbol) {
+        return i >= 0 && i < count && kinds[i] == SYMBOL && src[starts[i]] == symbol;
+    }
+
+    private String text(int i) {
+        return new String(src, starts[i], ends[i] - starts[i]);
+    }
+
+    private boolean read(Path javaFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(javaFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE / 4) {
+                return false;
+            }
+            if (bytes.capacity() < size) {
+                bytes = ByteBuffer.allocate(Integer.highestOneBit((int) size) << 1);
+            }
+            bytes.clear();
+            while (bytes.position() < size && channel.read(bytes) >= 0) {
+                // keep reading until the whole file is buffered
+            }
+            bytes.flip();
+        }
+        if (chars.capacity() < bytes.limit()) {
+            chars = CharBuffer.allocate(Integer.highestOneBit(bytes.limit()) << 1);
+        }
+        chars.clear();
+        decoder.reset();
+        if (decoder.decode(bytes, chars, true).isError() || decoder.flush(chars).isError()) {
+            return false;
+        }
+        chars.flip();
+        src = chars.array();
+        return true;
+    }
+
+    private boolean tokenize() {
+        int length = chars.limit();
+        count = 0;
+        int pos = 0;
+        while (pos < length) {
+            char c = src[pos];
+            if (Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+            if (c == '\\') {
+                return false; // unicode escape outside a literal can hide any token
+            }
+            int start = pos;
+            byte kind;
+            if (c == '/' && pos + 1 < length && src[pos + 1] == '/') {
+                while (pos < length && src[pos] != '\n' && src[pos] != '\r') {
+                    pos++;
+                }
+                continue;
+            } else if (c == '/' && pos + 1 < length && src[pos + 1] == '*') {
+                pos = indexOfCommentEnd(pos + 2, length);
+                if (pos < 0) {
+                    return false;
+                }
+                continue;
+            } else if (c == '"' || c == '\'') {
+                pos = c == '"' && pos + 2 < length && src[pos + 1] == '"' && src[pos + 2] == '"'
+                    ? skipTextBlock(pos + 3, length) : skipQuoted(pos + 1, c, length);
+                if (pos < 0) {
+                    return false;
+                }
+                kind = OTHER;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                while (pos < length && Character.isJavaIdentifierPart(src[pos])) {
+                    pos++;
+                }
+                kind = IDENT;
+            } else if (Character.isDigit(c) || (c == '.' && pos + 1 < length && Character.isDigit(src[pos + 1]))) {
+                pos++;
+                while (pos < length && (Character.isJavaIdentifierPart(src[pos]) || src[pos] == '.'
+                        || ((src[pos] == '+' || src[pos] == '-') && (src[pos - 1] == 'e' || src[pos - 1] == 'E'
+                            || src[pos - 1] == 'p' || src[pos - 1] == 'P')))) {
+                    pos++;
+                }
+                kind = OTHER;
+            } else {
+                pos++;
+                kind = SYMBOL;
+            }
+            add(start, pos, kind);
+        }
+        return true;
+    }
+
+    private void add(int start, int end, byte kind) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            kinds = Arrays.copyOf(kinds, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        kinds[count] = kind;
+        count++;
+    }
+
+    private int indexOfCommentEnd(int from, int length) {
+        for (int i = from; i + 1 < length; i++) {
+            if (src[i] == '*' && src[i + 1] == '/') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private int skipQuoted(int from, char quote, int length) {
+        for (int i = from; i < length; i++) {
+            char c = src[i];
+            if (c == '\\') {
+                if (i + 1 < length && src[i + 1] == 'u' && !isHarmlessUnicodeEscape(i + 1, quote, length)) {
+                    return -1;
+                }
+                i++;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // A unicode escape inside a literal is fine unless it could end the literal or the line
+    private boolean isHarmlessUnicodeEscape(int from, char quote, int length) {
+        int i = from;
+        while (i < length && src[i] == 'u') {
+            i++;
+        }
+        if (i + 4 > length) {
+            return false;
+        }
+        int value = 0;
+        for (int j = i; j < i + 4; j++) {
+            int digit = Character.digit(src[j], 16);
+            if (digit < 0) {
+                return false;
+            }
+            value = value * 16 + digit;
+        }
+        return value != quote && value != '\\' && value != '\n' && value != '\r';
+    }
+
+    private int skipTextBlock(int from, int length) {
+        for (int i = from; i + 2 < length; i++) {
+            char c = src[i];
+            if (c == '\\') {
+                if (src[i + 1] == 'u' && !isHarmlessUnicodeEscape(i + 1, '"', length)) {
+                    return -1;
+                }
+                i++;
+            } else if (c == '"' && src[i + 1] == '"' && src[i + 2] == '"') {
+                return i + 3;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.tools;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The deletion fixpoint over a {@link ClassGraph}. Starting from the
+ * targets, a class the targets depend on is deleted once its last user that
+ * is not itself deleted goes away. Runs as a reference-counting worklist, so
+ * every edge is looked at a bounded number of times.
+ *
+ * <p>Deletion removes whole files, so the classes of one file, as grouped by
+ * {@link Reachability}, are counted as one: a file is deleted once no class
+ * outside it that is still alive uses any of its classes, and deleting a
+ * target deletes the rest of its file with it.
+ */
+final class DeletionCascade {
+    private final ClassGraph graph;
+    // Null when every class is its own file
+    private final Reachability files;
+    private final BitSet targets;
+    private final BitSet deleted;
+    private final BitSet candidates;
+    // Classes deleted by the cascade, targets excluded, in deletion order
+    private int[] order;
+    private int count;
+    private int rounds;
+
+    private DeletionCascade(ClassGraph graph, Reachability files, BitSet targets) {
+        this.graph = graph;
+        this.files = files;
+        this.targets = targets;
+        this.deleted = (BitSet) targets.clone();
+        this.order = new int[graph.size()];
+        this.candidates = findAllDependencies(targets);
+    }
+
+    static DeletionCascade run(ClassGraph graph, BitSet targets) {
+        return run(graph, null, targets);
+    }
+
+    static DeletionCascade run(ClassGraph graph, Reachability files, BitSet targets) {
+        DeletionCascade cascade = new DeletionCascade(graph, files, targets);
+        cascade.run();
+        return cascade;
+    }
+
+    BitSet targets() {
+        return targets;
+    }
+
+    // Targets and everything deleted with them
+    BitSet deleted() {
+        return deleted;
+    }
+
+    // Everything reachable from the targets; the classes that could be deleted at all
+    BitSet candidates() {
+        return candidates;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int at(int index) {
+        return order[index];
+    }
+
+    // Number of worklist waves: each round deletes the classes freed by the previous one
+    int rounds() {
+        return rounds;
+    }
+
+    private void run() {
+        // The rest of a target's file goes with it
+        int tail = 0;
+        for (int id = targets.nextSetBit(0); id >= 0; id = targets.nextSetBit(id + 1)) {
+            for (int i = fileStart(id); i < fileEnd(id); i++) {
+                int member = fileMember(id, i);
+                if (!deleted.get(member)) {
+                    deleted.set(member);
+                    order[tail++] = member;
+                }
+            }
+        }
+        // Their users were never counted, so they free nothing on the worklist
+        int head = tail;
+
+        // Count, per candidate file, the users outside it that are not being deleted yet.
+        // Both counts are kept on the file's first class.
+        int[] liveUsers = new int[graph.size()];
+        int[] users = new int[graph.size()];
+        BitSet counted = new BitSet(graph.size());
+        for (int candidate = candidates.nextSetBit(0); candidate >= 0;
+                candidate = candidates.nextSetBit(candidate + 1)) {
+            int file = fileOf(candidate);
+            if (counted.get(file)) {
+                continue;
+            }
+            counted.set(file);
+            for (int i = fileStart(candidate); i < fileEnd(candidate); i++) {
+                int member = fileMember(candidate, i);
+                for (int e = graph.userStart(member); e < graph.userEnd(member); e++) {
+                    int user = graph.userAt(e);
+                    if (fileOf(user) != file) {
+                        users[file]++;
+                        if (!deleted.get(user)) {
+                            liveUsers[file]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        // A candidate file becomes deletable when its last live user is deleted
+        for (int file = counted.nextSetBit(0); file >= 0; file = counted.nextSetBit(file + 1)) {
+            if (!deleted.get(file) && liveUsers[file] == 0 && users[file] > 0) {
+                tail = deleteFile(file, tail);
+            }
+        }
+
+        int roundEnd = head;
+        while (head < tail) {
+            if (head == roundEnd) {
+                rounds++;
+                roundEnd = tail;
+            }
+            int id = order[head++];
+            int file = fileOf(id);
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                int dependency = fileOf(graph.dependencyAt(e));
+                if (dependency != file && !deleted.get(dependency) && counted.get(dependency)
+                        && --liveUsers[dependency] == 0) {
+                    tail = deleteFile(dependency, tail);
+                }
+            }
+        }
+        count = tail;
+        order = Arrays.copyOf(order, count);
+    }
+
+    private int deleteFile(int file, int tail) {
+        for (int i = fileStart(file); i < fileEnd(file); i++) {
+            int member = fileMember(file, i);
+            deleted.set(member);
+            order[tail++] = member;
+        }
+        return tail;
+    }
+
+    // The first class of id's file, which stands for the whole file
+    private int fileOf(int id) {
+        return files == null ? id : files.fileMember(files.fileStart(id));
+    }
+
+    private int fileStart(int id) {
+        return files == null ? 0 : files.fileStart(id);
+    }
+
+    private int fileEnd(int id) {
+        return files == null ? 1 : files.fileEnd(id);
+    }
+
+    private int fileMember(int id, int index) {
+        return files == null ? id : files.fileMember(index);
+    }
+
+    // Everything reachable from the targets over at least one edge, and the files around it
+    private BitSet findAllDependencies(BitSet targets) {
+        BitSet allDependencies = new BitSet(graph.size());
+        BitSet visited = new BitSet(graph.size());
+        int[] stack = new int[graph.size()];
+        int top = 0;
+        for (int id = targets.nextSetBit(0); id >= 0; id = targets.nextSetBit(id + 1)) {
+            for (int i = fileStart(id); i < fileEnd(id); i++) {
+                int member = fileMember(id, i);
+                if (!visited.get(member)) {
+                    visited.set(member);
+                    stack[top++] = member;
+                }
+            }
+        }
+        while (top > 0) {
+            int id = stack[--top];
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                int dependency = graph.dependencyAt(e);
+                allDependencies.set(dependency);
+                for (int i = fileStart(dependency); i < fileEnd(dependency); i++) {
+                    int member = fileMember(dependency, i);
+                    if (!visited.get(member)) {
+                        visited.set(member);
+                        stack[top++] = member;
+                    }
+                }
+            }
+        }
+        return allDependencies;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What deleting one class on its own would take with it, for every class at
+ * once; see {@link AnalysisSnapshot#computeImpact}. A class's exclusive set
+ * is itself plus everything only reachable through it. Immutable and safe
+ * to query from several threads.
+ */
+public final class DeletionImpact {
+    private final ClassGraph graph;
+    private final DominatorTree tree;
+    // Class ids by exclusive size, largest first; built on the first getLargest call
+    private volatile int[] ranking;
+
+    DeletionImpact(ClassGraph graph, DominatorTree tree) {
+        this.graph = graph;
+        this.tree = tree;
+    }
+
+    // Number of classes deleting this one frees, itself included; 0 if unknown
+    public int getExclusiveSize(String className) {
+        int id = graph.id(className);
+        return id >= 0 ? tree.subtreeSize(id) : 0;
+    }
+
+    // The class first, then everything only it keeps alive
+    public List<String> getExclusiveClasses(String className) {
+        int id = graph.id(className);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+        List<String> classes = new ArrayList<>(tree.subtreeSize(id));
+        for (int member : tree.subtree(id)) {
+            classes.add(graph.name(member));
+        }
+        return classes;
+    }
+
+    // The closest class every path to this one goes through, or null if there is none
+    public String getImmediateDominator(String className) {
+        int id = graph.id(className);
+        int dominator = id >= 0 ? tree.immediateDominator(id) : -1;
+        return dominator >= 0 ? graph.name(dominator) : null;
+    }
+
+    // Classes whose deletion frees the most classes, largest first, ties by name
+    public List<String> getLargest(int limit) {
+        int[] ranking = this.ranking;
+        if (ranking == null) {
+            ranking = rank();
+            this.ranking = ranking;
+        }
+        List<String> largest = new ArrayList<>(Math.min(limit, ranking.length));
+        for (int i = 0; i < ranking.length && i < limit; i++) {
+            largest.add(graph.name(ranking[i]));
+        }
+        return largest;
+    }
+
+    // Counting sort on subtree size; ids are in name order, so ties stay sorted by name
+    private int[] rank() {
+        int n = graph.size();
+        int[] start = new int[n + 2];
+        for (int id = 0; id < n; id++) {
+            start[n - tree.subtreeSize(id) + 1]++;
+        }
+        for (int i = 0; i <= n; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] ranking = new int[n];
+        for (int id = 0; id < n; id++) {
+            ranking[start[n - tree.subtreeSize(id)]++] = id;
+        }
+        return ranking;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answer to one {@link AnalysisSnapshot#query} call: the classes that would
+ * be deleted together with the targets, and for each of them the chain of
+ * users that leads back to a target. {@link AnalysisSnapshot#findUnreachable}
+ * answers with the same type; its targets are the entry points and it
+ * deletes what they do not reach. Immutable; building it deletes nothing,
+ * see {@link ClassDependencyAnalyzer#delete(DeletionPlan)}.
+ */
+public final class DeletionPlan {
+    private final AnalysisSnapshot snapshot;
+    // Null for a tree-shaking plan
+    private final DeletionCascade cascade;
+    private final BitSet targets;
+    private final BitSet deleted;
+    private final List<String> unknownTargets;
+    private final Map<String, Path> deletable = new LinkedHashMap<>();
+    private final List<String> protectedClasses = new ArrayList<>();
+    // Computed on the first getReason call; plans are often only counted
+    private volatile int[] witness;
+
+    DeletionPlan(AnalysisSnapshot snapshot, DeletionCascade cascade, List<String> unknownTargets) {
+        this.snapshot = snapshot;
+        this.cascade = cascade;
+        this.targets = cascade.targets();
+        this.deleted = cascade.deleted();
+        this.unknownTargets = Collections.unmodifiableList(unknownTargets);
+        ClassGraph graph = snapshot.graph();
+        for (int id = targets.nextSetBit(0); id >= 0; id = targets.nextSetBit(id + 1)) {
+            add(graph, id);
+        }
+        for (int i = 0; i < cascade.count(); i++) {
+            add(graph, cascade.at(i));
+        }
+    }
+
+    // Tree shaking: everything the roots do not reach, in name order
+    DeletionPlan(AnalysisSnapshot snapshot, BitSet roots, BitSet unreachable, List<String> unmatchedRoots) {
+        this.snapshot = snapshot;
+        this.cascade = null;
+        this.targets = roots;
+        this.deleted = unreachable;
+        this.unknownTargets = Collections.unmodifiableList(unmatchedRoots);
+        ClassGraph graph = snapshot.graph();
+        for (int id = unreachable.nextSetBit(0); id >= 0; id = unreachable.nextSetBit(id + 1)) {
+            add(graph, id);
+        }
+    }
+
+    private void add(ClassGraph graph, int id) {
+        String className = graph.name(id);
+        if (ClassDependencyAnalyzer.isProtected(className)) {
+            protectedClasses.add(className);
+        } else {
+            deletable.put(className, snapshot.path(id));
+        }
+    }
+
+    // Targets first, then the cascade in deletion order, each with its source file.
+    // For tree shaking, the unreachable classes.
+    public Map<String, Path> getDeletableClasses() {
+        return Collections.unmodifiableMap(deletable);
+    }
+
+    // Requested targets the snapshot does not know; for tree shaking, root
+    // patterns and annotations that matched no class
+    public List<String> getUnknownTargets() {
+        return unknownTargets;
+    }
+
+    // Classes the cascade reached but that are never deleted (the tool's own)
+    public List<String> getProtectedClasses() {
+        return Collections.unmodifiableList(protectedClasses);
+    }
+
+    /*
+     * A shortest chain from the class to a target through users that are
+     * deleted as well, starting with the class itself. Empty if the class
+     * is not deleted by this plan. An unreachable class needs no chain: the
+     * reason is the class alone.
+     */
+    public List<String> getReason(String className) {
+        ClassGraph graph = snapshot.graph();
+        int id = graph.id(className);
+        if (id < 0 || !deleted.get(id)) {
+            return Collections.emptyList();
+        }
+        if (cascade == null) {
+            return Collections.singletonList(className);
+        }
+        int[] witness = this.witness;
+        if (witness == null) {
+            witness = findShortestWitnesses(graph, snapshot.reachability(), targets, deleted);
+            this.witness = witness;
+        }
+        List<String> path = new ArrayList<>();
+        for (int node = id; node >= 0; node = witness[node]) {
+            path.add(graph.name(node));
+        }
+        return path;
+    }
+
+    // Zero for tree shaking
+    public int getCascadeRounds() {
+        return cascade != null ? cascade.rounds() : 0;
+    }
+
+    // The snapshot's graph with this plan's targets and deleted classes marked
+    public void export(Path file, GraphFormat format) throws IOException {
+        GraphExporter.write(snapshot, targets, deleted, file, format);
+    }
+
+    // Null for tree shaking
+    DeletionCascade cascade() {
+        return cascade;
+    }
+
+    AnalysisSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /*
+     * Multi-source BFS from the targets along dependency edges, staying inside
+     * the deleted set. witness[id] is the user one step closer to a target, or
+     * -1 for the targets themselves. A class deleted only because it shares
+     * a file with a deleted class has that class as its witness. Every user
+     * outside a deleted file is deleted, so each deleted class is reached.
+     */
+    private static int[] findShortestWitnesses(ClassGraph graph, Reachability files, BitSet targets,
+            BitSet deleted) {
+        int[] witness = new int[graph.size()];
+        BitSet visited = (BitSet) targets.clone();
+        int[] queue = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        for (int id = targets.nextSetBit(0); id >= 0; id = targets.nextSetBit(id + 1)) {
+            witness[id] = -1;
+            queue[tail++] = id;
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                int dependency = graph.dependencyAt(e);
+                if (deleted.get(dependency) && !visited.get(dependency)) {
+                    visited.set(dependency);
+                    witness[dependency] = id;
+                    queue[tail++] = dependency;
+                }
+            }
+            for (int i = files.fileStart(id); i < files.fileEnd(id); i++) {
+                int member = files.fileMember(i);
+                if (!visited.get(member)) {
+                    visited.set(member);
+                    witness[member] = id;
+                    queue[tail++] = member;
+                }
+            }
+        }
+        return witness;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.tools;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Dominator tree of the dependency graph below a virtual root, built with
+ * Lengauer-Tarjan (path compression, O(E log V)). A class dominates another
+ * when every path from the root to the other passes through it, which
+ * makes its dominator subtree exactly what becomes unreachable when the
+ * class alone is deleted.
+ *
+ * <p>The root points at the given roots and at every class the DFS from
+ * them did not reach, so each class ends up in the tree. Classes of one
+ * file point at each other, as in {@link Reachability}. Subtrees are laid
+ * out in preorder: a subtree is a contiguous range, so its size is O(1)
+ * and its members O(size).
+ */
+final class DominatorTree {
+    private final int[] idom;      // by class id; -1 for children of the virtual root
+    private final int[] preorder;  // class ids in tree preorder, virtual root left out
+    private final int[] position;  // by class id, index into preorder
+    private final int[] size;      // by class id, subtree size including the class
+
+    private DominatorTree(int[] idom, int[] preorder, int[] position, int[] size) {
+        this.idom = idom;
+        this.preorder = preorder;
+        this.position = position;
+        this.size = size;
+    }
+
+    int immediateDominator(int id) {
+        return idom[id];
+    }
+
+    int subtreeSize(int id) {
+        return size[id];
+    }
+
+    // The class and everything it dominates, preorder
+    int[] subtree(int id) {
+        return Arrays.copyOfRange(preorder, position[id], position[id] + size[id]);
+    }
+
+    static DominatorTree build(ClassGraph graph, Reachability files, BitSet roots) {
+        return new Builder(graph, files, roots).build();
+    }
+
+    /*
+     * Works in DFS numbers throughout; number 0 is the virtual root, whose
+     * vertex is graph.size().
+     */
+    private static final class Builder {
+        private final ClassGraph graph;
+        private final Reachability files;
+        private final int n;
+        private final int root;
+        // Classes the virtual root points at: the roots plus DFS restarts
+        private final BitSet rootChildren;
+
+        private final int[] number;  // by vertex, -1 until visited
+        private final int[] vertex;  // by number
+        private final int[] parent;
+        private final int[] semi;
+        private final int[] dominator;
+        private final int[] ancestor;
+        private final int[] label;
+        private final int[] bucketHead;
+        private final int[] bucketNext;
+        private int count;
+        private int[] path = new int[64];
+
+        Builder(ClassGraph graph, Reachability files, BitSet roots) {
+            this.graph = graph;
+            this.files = files;
+            this.n = graph.size();
+            this.root = n;
+            this.rootChildren = (BitSet) roots.clone();
+            this.number = new int[n + 1];
+            this.vertex = new int[n + 1];
+            this.parent = new int[n + 1];
+            this.semi = new int[n + 1];
+            this.dominator = new int[n + 1];
+            this.ancestor = new int[n + 1];
+            this.label = new int[n + 1];
+            this.bucketHead = new int[n + 1];
+            this.bucketNext = new int[n + 1];
+        }
+
+        DominatorTree build() {
+            Arrays.fill(number, -1);
+            visit(root, -1);
+            for (int id = rootChildren.nextSetBit(0); id >= 0; id = rootChildren.nextSetBit(id + 1)) {
+                if (number[id] < 0) {
+                    dfs(id);
+                }
+            }
+            // Whatever the roots miss hangs off the virtual root directly
+            for (int id = 0; id < n; id++) {
+                if (number[id] < 0) {
+                    rootChildren.set(id);
+                    dfs(id);
+                }
+            }
+            computeDominators();
+            return layOut();
+        }
+
+        private void visit(int v, int parentNumber) {
+            int k = count++;
+            number[v] = k;
+            vertex[k] = v;
+            parent[k] = parentNumber;
+            semi[k] = k;
+            label[k] = k;
+            ancestor[k] = -1;
+            bucketHead[k] = -1;
+        }
+
+        // Iterative DFS from a child of the virtual root
+        private void dfs(int start) {
+            int[] stack = new int[16];
+            int[] cursor = new int[16];
+            int top = 0;
+            visit(start, 0);
+            stack[0] = start;
+            cursor[0] = 0;
+            while (top >= 0) {
+                int v = stack[top];
+                int next = successor(v, cursor[top]++);
+                if (next == -2) {
+                    top--;
+                } else if (next >= 0 && number[next] < 0) {
+                    visit(next, number[v]);
+                    if (++top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                        cursor = Arrays.copyOf(cursor, top * 2);
+                    }
+                    stack[top] = next;
+                    cursor[top] = 0;
+                }
+            }
+        }
+
+        // i-th successor of a class: its dependencies, then its file siblings; -2 past the end, -1 to skip
+        private int successor(int v, int i) {
+            int dependencies = graph.dependencyEnd(v) - graph.dependencyStart(v);
+            if (i < dependencies) {
+                return graph.dependencyAt(graph.dependencyStart(v) + i);
+            }
+            int member = files.fileStart(v) + i - dependencies;
+            if (member < files.fileEnd(v)) {
+                int sibling = files.fileMember(member);
+                return sibling != v ? sibling : -1;
+            }
+            return -2;
+        }
+
+        private void computeDominators() {
+            for (int k = count - 1; k > 0; k--) {
+                int w = vertex[k];
+                // Predecessors: users, file siblings and possibly the virtual root
+                for (int e = graph.userStart(w); e < graph.userEnd(w); e++) {
+                    lowerSemi(k, graph.userAt(e));
+                }
+                for (int m = files.fileStart(w); m < files.fileEnd(w); m++) {
+                    int sibling = files.fileMember(m);
+                    if (sibling != w) {
+                        lowerSemi(k, sibling);
+                    }
+                }
+                if (rootChildren.get(w)) {
+                    semi[k] = 0;
+                }
+
+                bucketNext[k] = bucketHead[semi[k]];
+                bucketHead[semi[k]] = k;
+                int p = parent[k];
+                ancestor[k] = p;
+                for (int v = bucketHead[p]; v >= 0; v = bucketNext[v]) {
+                    int u = eval(v);
+                    dominator[v] = semi[u] < semi[v] ? u : p;
+                }
+                bucketHead[p] = -1;
+            }
+            for (int k = 1; k < count; k++) {
+                if (dominator[k] != semi[k]) {
+                    dominator[k] = dominator[dominator[k]];
+                }
+            }
+        }
+
+        private void lowerSemi(int k, int predecessor) {
+            int j = number[predecessor];
+            if (j >= 0) {
+                int u = eval(j);
+                if (semi[u] < semi[k]) {
+                    semi[k] = semi[u];
+                }
+            }
+        }
+
+        private int eval(int v) {
+            if (ancestor[v] < 0) {
+                return v;
+            }
+            compress(v);
+            return label[v];
+        }
+
+        // Path compression without recursion: collect the path, then fold it from the top
+        private void compress(int v) {
+            int length = 0;
+            for (int x = v; ancestor[ancestor[x]] >= 0; x = ancestor[x]) {
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, length * 2);
+                }
+                path[length++] = x;
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                int x = path[i];
+                int a = ancestor[x];
+                if (semi[label[a]] < semi[label[x]]) {
+                    label[x] = label[a];
+                }
+                ancestor[x] = ancestor[a];
+            }
+        }
+
+        // Children lists, then an iterative preorder walk that also sums subtree sizes
+        private DominatorTree layOut() {
+            int[] childOffsets = new int[count + 1];
+            for (int k = 1; k < count; k++) {
+                childOffsets[dominator[k] + 1]++;
+            }
+            for (int k = 0; k < count; k++) {
+                childOffsets[k + 1] += childOffsets[k];
+            }
+            int[] children = new int[Math.max(0, count - 1)];
+            int[] cursor = Arrays.copyOf(childOffsets, count);
+            for (int k = 1; k < count; k++) {
+                children[cursor[dominator[k]]++] = k;
+            }
+
+            int[] idom = new int[n];
+            int[] preorder = new int[n];
+            int[] position = new int[n];
+            int[] size = new int[n];
+            int[] stack = new int[count];
+            int top = 0;
+            int next = 0;
+            for (int c = childOffsets[0]; c < childOffsets[1]; c++) {
+                stack[top++] = children[c];
+            }
+            while (top > 0) {
+                int k = stack[--top];
+                int id = vertex[k];
+                idom[id] = dominator[k] == 0 ? -1 : vertex[dominator[k]];
+                position[id] = next;
+                preorder[next++] = id;
+                for (int c = childOffsets[k]; c < childOffsets[k + 1]; c++) {
+                    stack[top++] = children[c];
+                }
+            }
+            // Reverse preorder visits children before parents
+            Arrays.fill(size, 1);
+            for (int i = n - 1; i >= 0; i--) {
+                int id = preorder[i];
+                if (idom[id] >= 0) {
+                    size[idom[id]] += size[id];
+                }
+            }
+            return new DominatorTree(idom, preorder, position, size);
+        }
+    }
+}
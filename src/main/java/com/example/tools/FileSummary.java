@@ -0,0 +1,75 @@
+package com.example.tools;
+
+import java.nio.file.Path;
+
+/**
+ * Compact result of parsing one source file. The AST is dropped as soon as
+ * this is built; declaration indexing and edge extraction only see these.
+ */
+final class FileSummary {
+    private final Path path;
+    private final String packageName;
+    private final String[] imports;
+    private final String[] declaredTypes;
+    private final String primaryType;
+    private final String[] referencedTypes;
+    private final String[] annotations;
+    private final boolean mainMethod;
+
+    FileSummary(Path path, String packageName, String[] imports, String[] declaredTypes,
+            String primaryType, String[] referencedTypes, String[] annotations, boolean mainMethod) {
+        this.path = path;
+        this.packageName = packageName;
+        this.imports = imports;
+        this.declaredTypes = declaredTypes;
+        this.primaryType = primaryType;
+        this.referencedTypes = referencedTypes;
+        this.annotations = annotations;
+        this.mainMethod = mainMethod;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    String getPackageName() {
+        return packageName;
+    }
+
+    // Non-static imports as written, on-demand imports end with ".*"
+    String[] getImports() {
+        return imports;
+    }
+
+    String[] getDeclaredTypes() {
+        return declaredTypes;
+    }
+
+    // FQN of the file's primary class or interface, or null if it has none
+    String getPrimaryType() {
+        return primaryType;
+    }
+
+    // Type names as they appear in the source, not yet resolved. Null while
+    // only the declarations are known (see DeclarationScanner).
+    String[] getReferencedTypes() {
+        return referencedTypes;
+    }
+
+    // Annotations on the file's types and their members, as written. Like
+    // the referenced types, null until the file has been parsed.
+    String[] getAnnotations() {
+        return annotations;
+    }
+
+    // Whether a type in the file declares public static void main(String[])
+    boolean hasMainMethod() {
+        return mainMethod;
+    }
+
+    // Adds what only the parser finds to a summary built from declarations
+    FileSummary withReferences(String[] referencedTypes, String[] annotations, boolean mainMethod) {
+        return new FileSummary(path, packageName, imports, declaredTypes, primaryType,
+            referencedTypes, annotations, mainMethod);
+    }
+}
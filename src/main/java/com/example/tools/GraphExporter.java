@@ -0,0 +1,274 @@
+package com.example.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Streams a snapshot's graph, and optionally a deletion set, to a file. Every
+ * format is written node by node through one direct buffer that is drained
+ * into a file channel whenever it fills up, so the size of the graph never
+ * shows up as a string or byte array in memory.
+ *
+ * <p>Binary layout, big-endian; every section carries its length:
+ * <pre>
+ * int magic, int version, int classes, int edges
+ * int n+1, int[] name offsets into the blob
+ * int blob length, UTF-8 names, zero padding to a multiple of 4
+ * int n+1, int[] dependency offsets; int e, int[] dependencies
+ * int n+1, int[] user offsets;       int e, int[] users
+ * int words, long[] deleted bits;    int words, long[] target bits
+ * </pre>
+ */
+final class GraphExporter implements Closeable {
+    static final int MAGIC = 0x43444731; // "CDG1"
+    static final int FORMAT_VERSION = 1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+    private GraphExporter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    // Empty sets export the graph alone
+    static void write(AnalysisSnapshot snapshot, BitSet targets, BitSet deleted, Path file, GraphFormat format)
+            throws IOException {
+        ClassGraph graph = snapshot.graph();
+        try (GraphExporter out = new GraphExporter(file)) {
+            switch (format) {
+                case DOT:
+                    out.writeDot(graph, targets, deleted);
+                    break;
+                case JSON_LINES:
+                    out.writeJsonLines(snapshot, targets, deleted);
+                    break;
+                case BINARY:
+                    out.writeBinary(graph, targets, deleted);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        }
+    }
+
+    // Targets and deleted classes are coloured; edges point from user to dependency
+    private void writeDot(ClassGraph graph, BitSet targets, BitSet deleted) throws IOException {
+        ascii("digraph dependencies {\n  node [shape=box];\n");
+        for (int id = 0; id < graph.size(); id++) {
+            ascii("  ");
+            quoted(graph.name(id), false);
+            if (targets.get(id)) {
+                ascii(" [style=filled, fillcolor=\"#e06666\"]");
+            } else if (deleted.get(id)) {
+                ascii(" [style=filled, fillcolor=\"#f6b26b\"]");
+            }
+            ascii(";\n");
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                ascii("  ");
+                quoted(graph.name(id), false);
+                ascii(" -> ");
+                quoted(graph.name(graph.dependencyAt(e)), false);
+                ascii(";\n");
+            }
+        }
+        ascii("}\n");
+    }
+
+    // A header line with the totals, then one line per class
+    private void writeJsonLines(AnalysisSnapshot snapshot, BitSet targets, BitSet deleted) throws IOException {
+        ClassGraph graph = snapshot.graph();
+        ascii("{\"classes\":");
+        decimal(graph.size());
+        ascii(",\"edges\":");
+        decimal(graph.edgeCount());
+        ascii(",\"deleted\":");
+        decimal(deleted.cardinality());
+        ascii("}\n");
+        for (int id = 0; id < graph.size(); id++) {
+            ascii("{\"id\":");
+            decimal(id);
+            ascii(",\"name\":");
+            quoted(graph.name(id), true);
+            ascii(",\"path\":");
+            Path path = snapshot.path(id);
+            if (path != null) {
+                quoted(path.toString(), true);
+            } else {
+                ascii("null");
+            }
+            ascii(targets.get(id) ? ",\"target\":true" : ",\"target\":false");
+            ascii(deleted.get(id) ? ",\"deleted\":true" : ",\"deleted\":false");
+            ascii(",\"dependencies\":[");
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                if (e > graph.dependencyStart(id)) {
+                    ascii(",");
+                }
+                decimal(graph.dependencyAt(e));
+            }
+            ascii("],\"users\":[");
+            for (int e = graph.userStart(id); e < graph.userEnd(id); e++) {
+                if (e > graph.userStart(id)) {
+                    ascii(",");
+                }
+                decimal(graph.userAt(e));
+            }
+            ascii("]}\n");
+        }
+    }
+
+    private void writeBinary(ClassGraph graph, BitSet targets, BitSet deleted) throws IOException {
+        int n = graph.size();
+        putInt(MAGIC);
+        putInt(FORMAT_VERSION);
+        putInt(n);
+        putInt(graph.edgeCount());
+
+        // Names are encoded twice, once for the offsets and once for the blob,
+        // rather than holding every encoded name at the same time
+        putInt(n + 1);
+        int blobLength = 0;
+        putInt(0);
+        for (int id = 0; id < n; id++) {
+            blobLength += graph.name(id).getBytes(StandardCharsets.UTF_8).length;
+            putInt(blobLength);
+        }
+        putInt(blobLength);
+        for (int id = 0; id < n; id++) {
+            bytes(graph.name(id).getBytes(StandardCharsets.UTF_8));
+        }
+        for (int pad = blobLength; pad % 4 != 0; pad++) {
+            put((byte) 0);
+        }
+
+        putInt(n + 1);
+        for (int id = 0; id <= n; id++) {
+            putInt(graph.dependencyStart(id));
+        }
+        putInt(graph.edgeCount());
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            putInt(graph.dependencyAt(e));
+        }
+
+        putInt(n + 1);
+        for (int id = 0; id <= n; id++) {
+            putInt(graph.userStart(id));
+        }
+        putInt(graph.edgeCount());
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            putInt(graph.userAt(e));
+        }
+
+        bits(deleted, n);
+        bits(targets, n);
+    }
+
+    private void bits(BitSet set, int size) throws IOException {
+        long[] words = set.get(0, size).toLongArray();
+        putInt(words.length);
+        for (long word : words) {
+            ensure(8);
+            buffer.putLong(word);
+        }
+    }
+
+    // Quoted string; JSON and DOT both escape quotes and backslashes, JSON also control characters
+    private void quoted(String value, boolean json) throws IOException {
+        put((byte) '"');
+        boolean plain = true;
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            plain = c >= 0x20 && c < 0x7f && c != '"' && c != '\\';
+        }
+        if (plain) {
+            ascii(value);
+        } else {
+            StringBuilder escaped = new StringBuilder(value.length() + 8);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else if (json && c < 0x20) {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            bytes(escaped.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        put((byte) '"');
+    }
+
+    // Only for text known to be ASCII
+    private void ascii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put((byte) text.charAt(i));
+        }
+    }
+
+    // Non-negative decimal, written in place without an intermediate string
+    private void decimal(int value) throws IOException {
+        ensure(10);
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private void bytes(byte[] data) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), data.length - offset);
+            buffer.put(data, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void put(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    private void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
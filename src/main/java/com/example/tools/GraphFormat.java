@@ -0,0 +1,12 @@
+package com.example.tools;
+
+/**
+ * File formats for exporting the dependency graph. DOT is for Graphviz,
+ * JSON_LINES has one object per class with both edge directions, and
+ * BINARY is the compact form read back by {@link MappedGraph}.
+ */
+public enum GraphFormat {
+    DOT,
+    JSON_LINES,
+    BINARY
+}
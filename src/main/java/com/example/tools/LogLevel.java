@@ -0,0 +1,11 @@
+package com.example.tools;
+
+/**
+ * How much the analyzer logs. The log file gets every message at or below
+ * the chosen level; DEBUG also echoes the log to the console.
+ */
+public enum LogLevel {
+    ERROR,
+    INFO,
+    DEBUG
+}
@@ -0,0 +1,145 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a graph exported as {@link GraphFormat#BINARY}. The file
+ * is memory-mapped and every section is used in place, so opening costs
+ * the same for ten edges as for ten million; pages are read as they are
+ * touched. Names are decoded on each call. Safe for concurrent readers.
+ * Files are limited to 2 GB, the size of a single mapping.
+ */
+public final class MappedGraph {
+    private final int classCount;
+    private final int edgeCount;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer dependencyOffsets;
+    private final IntBuffer dependencies;
+    private final IntBuffer userOffsets;
+    private final IntBuffer users;
+    private final LongBuffer deleted;
+    private final LongBuffer targets;
+
+    private MappedGraph(ByteBuffer map) throws IOException {
+        if (map.getInt() != GraphExporter.MAGIC || map.getInt() != GraphExporter.FORMAT_VERSION) {
+            throw new IOException("Not a graph export of this version");
+        }
+        classCount = map.getInt();
+        edgeCount = map.getInt();
+        nameOffsets = ints(map);
+        int blobLength = map.getInt();
+        names = slice(map, blobLength);
+        map.position(map.position() + (4 - blobLength % 4) % 4);
+        dependencyOffsets = ints(map);
+        dependencies = ints(map);
+        userOffsets = ints(map);
+        users = ints(map);
+        deleted = longs(map);
+        targets = longs(map);
+    }
+
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Graph export too large to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedGraph(map);
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated or corrupt graph export: " + file, e);
+        }
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public String getName(int id) {
+        int start = nameOffsets.get(id);
+        byte[] bytes = new byte[nameOffsets.get(id + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = names.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Names are sorted, as in the analyzer; -1 if the class is not in the graph
+    public int getId(String className) {
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = getName(mid).compareTo(className);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getDependencyCount(int id) {
+        return dependencyOffsets.get(id + 1) - dependencyOffsets.get(id);
+    }
+
+    public int getDependency(int id, int index) {
+        return dependencies.get(dependencyOffsets.get(id) + index);
+    }
+
+    public int getUserCount(int id) {
+        return userOffsets.get(id + 1) - userOffsets.get(id);
+    }
+
+    public int getUser(int id, int index) {
+        return users.get(userOffsets.get(id) + index);
+    }
+
+    // False for every class if the export had no deletion set
+    public boolean isDeleted(int id) {
+        return bit(deleted, id);
+    }
+
+    public boolean isTarget(int id) {
+        return bit(targets, id);
+    }
+
+    private static boolean bit(LongBuffer words, int id) {
+        int word = id >>> 6;
+        return word < words.limit() && (words.get(word) & (1L << id)) != 0;
+    }
+
+    private static IntBuffer ints(ByteBuffer map) {
+        int length = map.getInt();
+        return slice(map, length * 4).asIntBuffer();
+    }
+
+    private static LongBuffer longs(ByteBuffer map) {
+        int length = map.getInt();
+        return slice(map, length * 8).asLongBuffer();
+    }
+
+    // The next bytes of the map as their own buffer; advances the map past them
+    private static ByteBuffer slice(ByteBuffer map, int length) {
+        ByteBuffer section = map.slice();
+        section.limit(length);
+        map.position(map.position() + length);
+        return section;
+    }
+}
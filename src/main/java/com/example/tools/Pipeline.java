@@ -0,0 +1,177 @@
+package com.example.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streaming pipeline of stages connected by bounded queues. Every stage has
+ * its own worker threads; a full queue blocks the stage feeding it, so the
+ * number of items in flight never exceeds the sum of the queue depths. A
+ * stage drops an item by returning null.
+ */
+final class Pipeline<T> {
+    private static final Object END = new Object();
+
+    private final String name;
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long wallNanos;
+
+    static final class StageConfig {
+        final int threads;
+        final int queueDepth;
+
+        StageConfig(int threads, int queueDepth) {
+            if (threads < 1 || queueDepth < 1) {
+                throw new IllegalArgumentException("Stage needs at least one thread and one queue slot");
+            }
+            this.threads = threads;
+            this.queueDepth = queueDepth;
+        }
+    }
+
+    private final class Stage {
+        final String name;
+        final int threads;
+        final UnaryOperator<T> function;
+        final BlockingQueue<Object> input;
+        final AtomicInteger running;
+        final AtomicLong items = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong starvedNanos = new AtomicLong();
+        final AtomicLong blockedNanos = new AtomicLong();
+        Stage next;
+
+        Stage(String name, StageConfig config, UnaryOperator<T> function) {
+            this.name = name;
+            this.threads = config.threads;
+            this.function = function;
+            this.input = new ArrayBlockingQueue<>(config.queueDepth);
+            this.running = new AtomicInteger(config.threads);
+        }
+
+        @SuppressWarnings("unchecked")
+        void work() {
+            try {
+                while (true) {
+                    long waitStart = System.nanoTime();
+                    Object item = input.take();
+                    long start = System.nanoTime();
+                    starvedNanos.addAndGet(start - waitStart);
+                    if (item == END) {
+                        input.put(END); // let the other workers of this stage see it
+                        break;
+                    }
+                    T result = null;
+                    // After a failure the remaining items are drained without work
+                    if (failure.get() == null) {
+                        try {
+                            result = function.apply((T) item);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, new IllegalStateException(
+                                "Pipeline stage " + name + " failed", t));
+                        }
+                    }
+                    long end = System.nanoTime();
+                    busyNanos.addAndGet(end - start);
+                    items.incrementAndGet();
+                    if (result != null && next != null) {
+                        next.input.put(result);
+                        blockedNanos.addAndGet(System.nanoTime() - end);
+                    }
+                }
+                if (running.decrementAndGet() == 0 && next != null) {
+                    next.input.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    Pipeline(String name) {
+        this.name = name;
+    }
+
+    Pipeline<T> stage(String stageName, StageConfig config, UnaryOperator<T> function) {
+        Stage stage = new Stage(stageName, config, function);
+        if (!stages.isEmpty()) {
+            stages.get(stages.size() - 1).next = stage;
+        }
+        stages.add(stage);
+        return this;
+    }
+
+    /*
+     * Feeds the items from the calling thread, blocking while the first
+     * queue is full, and returns once every stage has drained. The first
+     * failure of any stage is rethrown.
+     */
+    void run(Iterable<? extends T> source) {
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (Stage stage : stages) {
+            for (int i = 0; i < stage.threads; i++) {
+                Thread thread = new Thread(stage::work, name + "-" + stage.name + "-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        try {
+            Stage first = stages.get(0);
+            for (T item : source) {
+                if (failure.get() != null) {
+                    break;
+                }
+                first.input.put(item);
+            }
+            first.input.put(END);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw new IllegalStateException("Pipeline " + name + " interrupted", e);
+        }
+        wallNanos = System.nanoTime() - start;
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t != null) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /*
+     * One line per stage. Busy is the share of the stage's thread time spent
+     * working, starved the share spent waiting for input and blocked the
+     * share spent waiting on a full downstream queue. The stage with the
+     * highest busy share is the bottleneck.
+     */
+    List<String> report() {
+        List<String> lines = new ArrayList<>();
+        double wall = Math.max(1, wallNanos);
+        for (Stage stage : stages) {
+            double capacity = wall * stage.threads;
+            lines.add(String.format("Stage %-8s %2d threads, %d items, busy %5.1f%%, starved %5.1f%%, blocked %5.1f%%",
+                stage.name, stage.threads, stage.items.get(),
+                100 * stage.busyNanos.get() / capacity,
+                100 * stage.starvedNanos.get() / capacity,
+                100 * stage.blockedNanos.get() / capacity));
+        }
+        lines.add(String.format("Pipeline %s: %d ms", name, wallNanos / 1_000_000));
+        return lines;
+    }
+}
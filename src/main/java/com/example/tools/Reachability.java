@@ -0,0 +1,169 @@
+package com.example.tools;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Marks everything reachable from a set of roots, level by level. Each
+ * frontier is split into chunks that are expanded in parallel; a class is
+ * claimed by whichever thread first sets its bit, so every class enters a
+ * frontier once and every edge is followed once.
+ *
+ * <p>Classes declared in the same file live and die together: a file stays
+ * as long as any of its classes is reachable, and the edges of all its
+ * classes are recorded on its primary type. Marking one class of a file
+ * therefore marks the others too.
+ */
+final class Reachability {
+    // Smaller frontiers are expanded on the calling thread
+    private static final int CHUNK = 1024;
+
+    private final ClassGraph graph;
+    // Classes of the same file, in CSR form: fileMembers[fileOffsets[f] .. fileOffsets[f + 1] - 1]
+    private final int[] fileOf;
+    private final int[] fileOffsets;
+    private final int[] fileMembers;
+
+    private Reachability(ClassGraph graph, int[] fileOf, int[] fileOffsets, int[] fileMembers) {
+        this.graph = graph;
+        this.fileOf = fileOf;
+        this.fileOffsets = fileOffsets;
+        this.fileMembers = fileMembers;
+    }
+
+    // paths[id] is the file declaring class id; classes without a file stand alone
+    static Reachability of(ClassGraph graph, Path[] paths) {
+        int n = graph.size();
+        int[] fileOf = new int[n];
+        Map<Path, Integer> files = new HashMap<>();
+        int fileCount = 0;
+        for (int id = 0; id < n; id++) {
+            Integer file = paths[id] != null ? files.get(paths[id]) : null;
+            if (file == null) {
+                file = fileCount++;
+                if (paths[id] != null) {
+                    files.put(paths[id], file);
+                }
+            }
+            fileOf[id] = file;
+        }
+        int[] fileOffsets = new int[fileCount + 1];
+        for (int id = 0; id < n; id++) {
+            fileOffsets[fileOf[id] + 1]++;
+        }
+        for (int f = 0; f < fileCount; f++) {
+            fileOffsets[f + 1] += fileOffsets[f];
+        }
+        int[] cursor = Arrays.copyOf(fileOffsets, fileCount);
+        int[] fileMembers = new int[n];
+        for (int id = 0; id < n; id++) {
+            fileMembers[cursor[fileOf[id]]++] = id;
+        }
+        return new Reachability(graph, fileOf, fileOffsets, fileMembers);
+    }
+
+    // The classes declared in the same file as id, id included
+    int fileStart(int id) {
+        return fileOffsets[fileOf[id]];
+    }
+
+    int fileEnd(int id) {
+        return fileOffsets[fileOf[id] + 1];
+    }
+
+    int fileMember(int index) {
+        return fileMembers[index];
+    }
+
+    BitSet mark(BitSet roots) {
+        AtomicLongArray marked = new AtomicLongArray((graph.size() + 63) >>> 6);
+        int[] frontier = new int[roots.cardinality()];
+        int size = 0;
+        for (int id = roots.nextSetBit(0); id >= 0; id = roots.nextSetBit(id + 1)) {
+            if (claim(marked, id)) {
+                frontier[size++] = id;
+            }
+        }
+        while (size > 0) {
+            if (size <= CHUNK) {
+                frontier = expand(marked, frontier, 0, size);
+            } else {
+                int[] current = frontier;
+                int last = size;
+                int[][] parts = IntStream.range(0, (size + CHUNK - 1) / CHUNK).parallel()
+                    .mapToObj(c -> expand(marked, current, c * CHUNK, Math.min(last, (c + 1) * CHUNK)))
+                    .toArray(int[][]::new);
+                frontier = concat(parts);
+            }
+            size = frontier.length;
+        }
+
+        long[] words = new long[marked.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = marked.get(i);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    // The newly claimed neighbours of frontier[from .. to - 1]
+    private int[] expand(AtomicLongArray marked, int[] frontier, int from, int to) {
+        int[] next = new int[16];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            int id = frontier[i];
+            int file = fileOf[id];
+            for (int m = fileOffsets[file]; m < fileOffsets[file + 1]; m++) {
+                int member = fileMembers[m];
+                if (claim(marked, member)) {
+                    if (size == next.length) {
+                        next = Arrays.copyOf(next, size * 2);
+                    }
+                    next[size++] = member;
+                }
+            }
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                int dependency = graph.dependencyAt(e);
+                if (claim(marked, dependency)) {
+                    if (size == next.length) {
+                        next = Arrays.copyOf(next, size * 2);
+                    }
+                    next[size++] = dependency;
+                }
+            }
+        }
+        return Arrays.copyOf(next, size);
+    }
+
+    // Sets the bit; true only for the one caller that changed it
+    private static boolean claim(AtomicLongArray marked, int id) {
+        int word = id >>> 6;
+        long bit = 1L << id;
+        long current = marked.get(word);
+        while ((current & bit) == 0) {
+            if (marked.compareAndSet(word, current, current | bit)) {
+                return true;
+            }
+            current = marked.get(word);
+        }
+        return false;
+    }
+
+    private static int[] concat(int[][] parts) {
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] result = new int[total];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.tools;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The modules of a Maven reactor and the dependencies between them, read
+ * from the pom.xml files below the root. Only what the analyzer needs is
+ * read: coordinates, the parent, the module list and the dependencies
+ * section. Dependencies on artifacts outside the reactor are ignored, and
+ * scopes are not told apart.
+ */
+final class Reactor {
+    static final class Module {
+        final String id;
+        final Path directory;
+        final int index;
+        private final String parentId;
+        private final List<String> dependencyIds;
+        // This module and everything it depends on, directly or not, by index
+        private BitSet visible;
+
+        private Module(String id, Path directory, int index, String parentId, List<String> dependencyIds) {
+            this.id = id;
+            this.directory = directory;
+            this.index = index;
+            this.parentId = parentId;
+            this.dependencyIds = dependencyIds;
+        }
+
+        boolean sees(Module other) {
+            return visible.get(other.index);
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    private final List<Module> modules = new ArrayList<>();
+    private final Map<String, Module> byId = new HashMap<>();
+    private final Map<Path, Module> byDirectory = new HashMap<>();
+
+    private Reactor() {
+    }
+
+    // Null if the root has no pom.xml
+    static Reactor load(Path root) throws IOException {
+        root = root.toAbsolutePath().normalize();
+        if (!Files.isRegularFile(root.resolve("pom.xml"))) {
+            return null;
+        }
+        Reactor reactor = new Reactor();
+        DocumentBuilder builder = newDocumentBuilder();
+        reactor.read(builder, root);
+        reactor.link();
+        return reactor;
+    }
+
+    List<Module> modules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    // The module with the deepest directory containing the file, or null if outside the reactor
+    Module moduleOf(Path file) {
+        for (Path dir = file.toAbsolutePath().normalize().getParent(); dir != null; dir = dir.getParent()) {
+            Module module = byDirectory.get(dir);
+            if (module != null) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Modules whose classes can take part in a cascade starting in the given
+     * modules. Deleted classes are reachable from the targets, so they live
+     * in a target module or one of its dependencies; a class there can only
+     * be used from a module that sees that module. Everything else can be
+     * left out without changing the result.
+     */
+    BitSet affectedBy(BitSet targetModules) {
+        BitSet reachable = new BitSet(modules.size());
+        for (int i = targetModules.nextSetBit(0); i >= 0; i = targetModules.nextSetBit(i + 1)) {
+            reachable.or(modules.get(i).visible);
+        }
+        BitSet affected = new BitSet(modules.size());
+        for (Module module : modules) {
+            if (module.visible.intersects(reachable)) {
+                affected.set(module.index);
+            }
+        }
+        return affected;
+    }
+
+    private void read(DocumentBuilder builder, Path directory) throws IOException {
+        Path pom = directory.resolve("pom.xml");
+        if (byDirectory.containsKey(directory) || !Files.isRegularFile(pom)) {
+            return;
+        }
+        Element project;
+        try {
+            Document document = builder.parse(pom.toFile());
+            project = document.getDocumentElement();
+        } catch (SAXException e) {
+            throw new IOException("Cannot parse " + pom + ": " + e.getMessage(), e);
+        }
+
+        Element parent = child(project, "parent");
+        String parentGroupId = parent != null ? text(parent, "groupId") : null;
+        String groupId = text(project, "groupId");
+        if (groupId == null) {
+            groupId = parentGroupId;
+        }
+        String parentId = parent != null ? parentGroupId + ":" + text(parent, "artifactId") : null;
+
+        List<String> dependencyIds = new ArrayList<>();
+        Element dependencies = child(project, "dependencies");
+        if (dependencies != null) {
+            for (Element dependency : children(dependencies, "dependency")) {
+                String dependencyGroupId = text(dependency, "groupId");
+                if (dependencyGroupId == null || dependencyGroupId.equals("${project.groupId}")) {
+                    dependencyGroupId = groupId;
+                } else if (dependencyGroupId.equals("${project.parent.groupId}")) {
+                    dependencyGroupId = parentGroupId;
+                }
+                dependencyIds.add(dependencyGroupId + ":" + text(dependency, "artifactId"));
+            }
+        }
+
+        Module module = new Module(groupId + ":" + text(project, "artifactId"), directory,
+            modules.size(), parentId, dependencyIds);
+        modules.add(module);
+        byId.put(module.id, module);
+        byDirectory.put(directory, module);
+
+        Element moduleList = child(project, "modules");
+        if (moduleList != null) {
+            for (Element child : children(moduleList, "module")) {
+                read(builder, directory.resolve(child.getTextContent().trim()).normalize());
+            }
+        }
+    }
+
+    // Dependencies declared in a parent are inherited; visibility is transitive
+    private void link() {
+        int[][] direct = new int[modules.size()][];
+        for (Module module : modules) {
+            BitSet dependencies = new BitSet();
+            // Bounded walk up the parents, in case of a malformed cycle
+            Module declaring = module;
+            for (int depth = 0; declaring != null && depth < modules.size(); depth++) {
+                for (String dependencyId : declaring.dependencyIds) {
+                    Module dependency = byId.get(dependencyId);
+                    if (dependency != null) {
+                        dependencies.set(dependency.index);
+                    }
+                }
+                declaring = declaring.parentId != null ? byId.get(declaring.parentId) : null;
+            }
+            direct[module.index] = dependencies.stream().toArray();
+        }
+        int[] stack = new int[modules.size()];
+        for (Module module : modules) {
+            BitSet visible = new BitSet(modules.size());
+            visible.set(module.index);
+            int top = 0;
+            stack[top++] = module.index;
+            while (top > 0) {
+                for (int dependency : direct[stack[--top]]) {
+                    if (!visible.get(dependency)) {
+                        visible.set(dependency);
+                        stack[top++] = dependency;
+                    }
+                }
+            }
+            module.visible = visible;
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            // A pom never needs a DTD; refusing one also rules out external entities
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IOException("No XML parser available", e);
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && name.equals(node.getNodeName())) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && name.equals(node.getNodeName())) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String name) {
+        Element element = child(parent, name);
+        return element != null ? element.getTextContent().trim() : null;
+    }
+}
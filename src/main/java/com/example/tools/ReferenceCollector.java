@@ -0,0 +1,266 @@
+package com.example.tools;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects every type name a compilation unit refers to in one walk of the
+ * AST: declared types of fields, variables, parameters and results,
+ * extends and implements clauses, type arguments and bounds, casts,
+ * instanceof, class literals, object creation, throws and catch clauses,
+ * annotations, method reference and call scopes, and static imports. Enum,
+ * record and annotation bodies are walked like classes.
+ *
+ * <p>Names are kept as written, for {@link TypeIndex} to resolve. A simple
+ * name that is a type variable in scope is left out, and so is a call or
+ * field-access scope that starts with a parameter or local variable of the
+ * enclosing method, lambda or initializer. Each thread reuses one
+ * collector and its buffers, so a file only allocates its result array.
+ */
+final class ReferenceCollector extends VoidVisitorAdapter<Void> {
+    private static final ThreadLocal<ReferenceCollector> COLLECTOR =
+        ThreadLocal.withInitial(ReferenceCollector::new);
+
+    private String[] names = new String[64];
+    private int count;
+    private final Set<String> seen = new HashSet<>();
+    // Type variables of the enclosing declarations, innermost last
+    private final List<String> typeVariables = new ArrayList<>();
+    // Parameters and locals of the enclosing bodies; a whole body shares one scope
+    private final List<String> locals = new ArrayList<>();
+
+    private ReferenceCollector() {
+    }
+
+    // Distinct type names in order of first appearance
+    static String[] collect(CompilationUnit cu) {
+        ReferenceCollector collector = COLLECTOR.get();
+        try {
+            cu.accept(collector, null);
+            return Arrays.copyOf(collector.names, collector.count);
+        } finally {
+            collector.reset();
+        }
+    }
+
+    private void reset() {
+        Arrays.fill(names, 0, count, null);
+        count = 0;
+        seen.clear();
+        typeVariables.clear();
+        locals.clear();
+    }
+
+    private void add(String name) {
+        if (seen.add(name)) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+            }
+            names[count++] = name;
+        }
+    }
+
+    @Override
+    public void visit(ImportDeclaration n, Void arg) {
+        // import static a.B.member uses a.B; plain imports name types without using them
+        if (n.isStatic()) {
+            String name = n.getNameAsString();
+            add(n.isAsterisk() ? name : name.substring(0, Math.max(0, name.lastIndexOf('.'))));
+        }
+    }
+
+    @Override
+    public void visit(ClassOrInterfaceDeclaration n, Void arg) {
+        int mark = enterScope(n.getTypeParameters());
+        super.visit(n, arg);
+        exitScope(mark);
+    }
+
+    @Override
+    public void visit(RecordDeclaration n, Void arg) {
+        int mark = enterScope(n.getTypeParameters());
+        int localMark = locals.size();
+        declare(n.getParameters());
+        super.visit(n, arg);
+        trim(locals, localMark);
+        exitScope(mark);
+    }
+
+    @Override
+    public void visit(MethodDeclaration n, Void arg) {
+        int mark = enterScope(n.getTypeParameters());
+        int localMark = locals.size();
+        declare(n.getParameters());
+        super.visit(n, arg);
+        trim(locals, localMark);
+        exitScope(mark);
+    }
+
+    @Override
+    public void visit(ConstructorDeclaration n, Void arg) {
+        int mark = enterScope(n.getTypeParameters());
+        int localMark = locals.size();
+        declare(n.getParameters());
+        super.visit(n, arg);
+        trim(locals, localMark);
+        exitScope(mark);
+    }
+
+    @Override
+    public void visit(InitializerDeclaration n, Void arg) {
+        int localMark = locals.size();
+        super.visit(n, arg);
+        trim(locals, localMark);
+    }
+
+    @Override
+    public void visit(LambdaExpr n, Void arg) {
+        int localMark = locals.size();
+        declare(n.getParameters());
+        super.visit(n, arg);
+        trim(locals, localMark);
+    }
+
+    @Override
+    public void visit(CatchClause n, Void arg) {
+        int localMark = locals.size();
+        locals.add(n.getParameter().getNameAsString());
+        super.visit(n, arg);
+        trim(locals, localMark);
+    }
+
+    @Override
+    public void visit(VariableDeclarationExpr n, Void arg) {
+        for (VariableDeclarator variable : n.getVariables()) {
+            locals.add(variable.getNameAsString());
+        }
+        super.visit(n, arg);
+    }
+
+    // The scope is part of the name, so it is not visited on its own
+    @Override
+    public void visit(ClassOrInterfaceType n, Void arg) {
+        if (n.getScope().isPresent() || !typeVariables.contains(n.getNameAsString())) {
+            add(n.getNameWithScope());
+        }
+        n.getTypeArguments().ifPresent(arguments -> visitAll(arguments));
+        n.getAnnotations().forEach(annotation -> annotation.accept(this, arg));
+    }
+
+    @Override
+    public void visit(MarkerAnnotationExpr n, Void arg) {
+        add(n.getNameAsString());
+    }
+
+    @Override
+    public void visit(SingleMemberAnnotationExpr n, Void arg) {
+        add(n.getNameAsString());
+        n.getMemberValue().accept(this, arg);
+    }
+
+    @Override
+    public void visit(NormalAnnotationExpr n, Void arg) {
+        add(n.getNameAsString());
+        n.getPairs().forEach(pair -> pair.getValue().accept(this, arg));
+    }
+
+    // Type.method() and a.b.Type.method(); other scopes are expressions to walk
+    @Override
+    public void visit(MethodCallExpr n, Void arg) {
+        n.getScope().ifPresent(scope -> scope(scope, arg));
+        n.getTypeArguments().ifPresent(arguments -> visitAll(arguments));
+        n.getArguments().forEach(argument -> argument.accept(this, arg));
+    }
+
+    @Override
+    public void visit(FieldAccessExpr n, Void arg) {
+        scope(n.getScope(), arg);
+        n.getTypeArguments().ifPresent(arguments -> visitAll(arguments));
+    }
+
+    @Override
+    public void visit(MethodReferenceExpr n, Void arg) {
+        scope(n.getScope(), arg);
+        n.getTypeArguments().ifPresent(arguments -> visitAll(arguments));
+    }
+
+    private void scope(Expression scope, Void arg) {
+        if (isName(scope)) {
+            String name = scope.toString();
+            int dot = name.indexOf('.');
+            if (!locals.contains(dot < 0 ? name : name.substring(0, dot))) {
+                add(name);
+            }
+        } else {
+            scope.accept(this, arg);
+        }
+    }
+
+    // A plain or dotted name, the only scopes that can be a type
+    private static boolean isName(Expression expression) {
+        while (expression.isFieldAccessExpr()) {
+            expression = expression.asFieldAccessExpr().getScope();
+        }
+        return expression.isNameExpr();
+    }
+
+    private void visitAll(NodeList<Type> types) {
+        for (Type type : types) {
+            type.accept(this, null);
+        }
+    }
+
+    // Type variables are in scope for their own bounds, so they are pushed first
+    private int enterScope(NodeList<TypeParameter> parameters) {
+        int mark = typeVariables.size();
+        for (TypeParameter parameter : parameters) {
+            typeVariables.add(parameter.getNameAsString());
+        }
+        return mark;
+    }
+
+    private void exitScope(int mark) {
+        trim(typeVariables, mark);
+    }
+
+    // The adapter walks bodies before parameters, so parameters are declared up front
+    private void declare(NodeList<Parameter> parameters) {
+        for (Parameter parameter : parameters) {
+            locals.add(parameter.getNameAsString());
+        }
+    }
+
+    private static void trim(List<String> names, int mark) {
+        while (names.size() > mark) {
+            names.remove(names.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measurements of one analyzer run, written as a JSON document so CI jobs
+ * can diff runs: wall time per phase, throughput, parse latency, graph size,
+ * cascade shape and peak heap. Recording methods are safe to call from
+ * worker threads.
+ */
+final class RunProfile {
+    private static final int SLOWEST_FILES = 10;
+    // Bucket i counts parses that took less than 2^i microseconds; the last one is open-ended
+    private static final int LATENCY_BUCKETS = 24;
+
+    private final long started = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Object> info = new LinkedHashMap<>();
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS);
+    private final AtomicLong parseCount = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong resolveNanos = new AtomicLong();
+    private final PriorityQueue<Object[]> slowest = new PriorityQueue<>(
+        (a, b) -> Long.compare((Long) a[1], (Long) b[1]));
+    private volatile long slowestThreshold;
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private boolean completed;
+
+    RunProfile() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    synchronized void set(String key, Object value) {
+        info.put(key, value);
+    }
+
+    synchronized void count(String key, long value) {
+        counts.put(key, value);
+    }
+
+    // Pass the System.nanoTime() taken when the phase started
+    synchronized void phase(String name, long startNanos) {
+        phaseNanos.put(name, System.nanoTime() - startNanos);
+    }
+
+    void parsed(Path file, long nanos) {
+        parseCount.incrementAndGet();
+        parseNanos.addAndGet(nanos);
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        latency.incrementAndGet(bucket);
+        // Only parses slower than the current top list take the lock
+        if (nanos > slowestThreshold) {
+            synchronized (slowest) {
+                slowest.add(new Object[] {file.toString(), nanos});
+                if (slowest.size() > SLOWEST_FILES) {
+                    slowest.poll();
+                    slowestThreshold = (Long) slowest.peek()[1];
+                }
+            }
+        }
+    }
+
+    // Resolution runs on several pipeline threads; this sums their time
+    void resolved(long nanos) {
+        resolveNanos.addAndGet(nanos);
+    }
+
+    synchronized void completed() {
+        completed = true;
+    }
+
+    synchronized void write(Path file) throws IOException {
+        long totalNanos = System.nanoTime() - startNanos;
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n");
+        field(json, 1, "started", Instant.ofEpochMilli(started).toString()).append(",\n");
+        field(json, 1, "completed", completed).append(",\n");
+        for (Map.Entry<String, Object> entry : info.entrySet()) {
+            field(json, 1, entry.getKey(), entry.getValue()).append(",\n");
+        }
+
+        indent(json, 1).append("\"phasesMillis\": {\n");
+        for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+            field(json, 2, entry.getKey(), millis(entry.getValue())).append(",\n");
+        }
+        field(json, 2, "resolveThreadTime", millis(resolveNanos.get())).append(",\n");
+        field(json, 2, "total", millis(totalNanos)).append("\n");
+        indent(json, 1).append("},\n");
+
+        indent(json, 1).append("\"counts\": {\n");
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            lines.add(field(new StringBuilder(), 2, entry.getKey(), entry.getValue()).toString());
+        }
+        json.append(String.join(",\n", lines)).append(lines.isEmpty() ? "" : "\n");
+        indent(json, 1).append("},\n");
+
+        indent(json, 1).append("\"throughput\": {\n");
+        field(json, 2, "discoveredFilesPerSecond", perSecond(counts.get("files"), phaseNanos.get("discovery"))).append(",\n");
+        field(json, 2, "extractedFilesPerSecond", perSecond(counts.get("files"), phaseNanos.get("extraction"))).append("\n");
+        indent(json, 1).append("},\n");
+
+        indent(json, 1).append("\"parseLatency\": {\n");
+        field(json, 2, "count", parseCount.get()).append(",\n");
+        field(json, 2, "totalMillis", millis(parseNanos.get())).append(",\n");
+        indent(json, 2).append("\"histogramMicros\": [");
+        lines.clear();
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            if (latency.get(i) > 0) {
+                lines.add("{\"below\": " + (i == LATENCY_BUCKETS - 1 ? "null" : String.valueOf(1L << i))
+                    + ", \"count\": " + latency.get(i) + "}");
+            }
+        }
+        json.append(String.join(", ", lines)).append("],\n");
+        indent(json, 2).append("\"slowest\": [");
+        List<Object[]> top;
+        synchronized (slowest) {
+            top = new ArrayList<>(slowest);
+        }
+        top.sort((a, b) -> Long.compare((Long) b[1], (Long) a[1]));
+        lines.clear();
+        for (Object[] entry : top) {
+            lines.add("\n" + indent(new StringBuilder(), 3) + "{\"file\": " + quote((String) entry[0])
+                + ", \"millis\": " + millis((Long) entry[1]) + "}");
+        }
+        json.append(String.join(",", lines)).append(lines.isEmpty() ? "" : "\n" + indent(new StringBuilder(), 2)).append("]\n");
+        indent(json, 1).append("},\n");
+
+        field(json, 1, "peakHeapBytes", peakHeap()).append("\n");
+        json.append("}\n");
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(json.toString());
+        }
+    }
+
+    // Sum of the per-pool peaks since the profile was created
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static Object perSecond(Long count, Long nanos) {
+        if (count == null || nanos == null || nanos == 0) {
+            return null;
+        }
+        return Math.round(count * 1e9 / nanos * 10) / 10.0;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+
+    private static StringBuilder indent(StringBuilder json, int depth) {
+        for (int i = 0; i < depth; i++) {
+            json.append("  ");
+        }
+        return json;
+    }
+
+    private static StringBuilder field(StringBuilder json, int depth, String name, Object value) {
+        indent(json, depth).append(quote(name)).append(": ");
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            json.append(quote(value.toString()));
+        }
+        return json;
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
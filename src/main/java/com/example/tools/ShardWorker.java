@@ -0,0 +1,103 @@
+package com.example.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Worker process of a sharded run: parses the files of one shard and writes
+ * their summaries, declarations and unresolved references, to a partial
+ * file. Nothing is resolved here; only the coordinator knows every declared
+ * type. Started by {@link ShardedExtraction}:
+ *
+ * <pre>ShardWorker &lt;file list&gt; &lt;partial file&gt; &lt;threads&gt;</pre>
+ *
+ * <p>Partial layout, big-endian: int magic, then per file a true byte, the
+ * UTF path and the summary as in {@link AnalysisCache}, then a false byte.
+ * A file without the final byte is truncated. A file the parser rejects
+ * keeps the declarations of the lexical scanner and no references, as in a
+ * single-process run; only files neither can read are left out. A file that
+ * cannot be read fails the worker, so the coordinator never resolves
+ * without it.
+ */
+final class ShardWorker {
+    static final int MAGIC = 0x43445031; // "CDP1"
+
+    private ShardWorker() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: ShardWorker <file list> <partial file> <threads>");
+            System.exit(2);
+        }
+        try {
+            List<String> files = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+            run(files, Paths.get(args[1]), Integer.parseInt(args[2]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void run(List<String> files, Path partial, int threads) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+            out.writeInt(MAGIC);
+            // Summaries are written as they are done, so the shard is never held in memory
+            pool.submit(() -> files.parallelStream().forEach(file -> {
+                Path path = Paths.get(file);
+                FileSummary summary;
+                try {
+                    summary = ClassDependencyAnalyzer.summarizeComplete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read " + path, e);
+                }
+                if (summary != null) {
+                    write(out, summary);
+                }
+            })).get();
+            out.writeBoolean(false);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void write(DataOutputStream out, FileSummary summary) {
+        synchronized (out) {
+            try {
+                out.writeBoolean(true);
+                out.writeUTF(summary.getPath().toString());
+                AnalysisCache.writeSummary(out, summary);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static List<FileSummary> read(Path partial) throws IOException {
+        List<FileSummary> summaries = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(partial), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a shard partial file: " + partial);
+            }
+            while (in.readBoolean()) {
+                Path path = Paths.get(in.readUTF());
+                summaries.add(AnalysisCache.readSummary(in, path));
+            }
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Parses a file list in several worker JVMs on this machine, one
+ * {@link ShardWorker} per shard, and reads their partial files back. For
+ * trees where one heap, and its GC, is the limit: the ASTs only ever exist
+ * in the workers, the coordinator holds the summaries alone. Resolution
+ * needs every declaration, so it stays with the coordinator.
+ *
+ * <p>Shards are balanced by bytes, largest file first onto the lightest
+ * shard. Workers share the machine's cores and 75% of its memory evenly.
+ *
+ * <p>Workers get an explicit classpath, the one this tool was loaded
+ * from, so they start under {@code mvn exec:java} as well as from the
+ * jar-with-dependencies. The system property {@value #CLASSPATH_PROPERTY}
+ * overrides it.
+ */
+final class ShardedExtraction {
+    private static final int MEMORY_PERCENT = 75;
+    static final String CLASSPATH_PROPERTY = "class-deleter.worker.classpath";
+
+    private final int shards;
+    private final Consumer<String> log;
+
+    ShardedExtraction(int shards, Consumer<String> log) {
+        this.shards = shards;
+        this.log = log;
+    }
+
+    // Summaries with referenced types filled in; files the parser rejects are missing
+    List<FileSummary> run(List<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<Path>> parts = balance(files);
+        Path directory = Files.createTempDirectory("class-deleter-shards");
+        List<Process> workers = new ArrayList<>();
+        try {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                Path list = directory.resolve("shard" + i + ".txt");
+                List<String> lines = new ArrayList<>(parts.get(i).size());
+                for (Path file : parts.get(i)) {
+                    lines.add(file.toString());
+                }
+                Files.write(list, lines, StandardCharsets.UTF_8);
+                workers.add(start(list, directory.resolve("shard" + i + ".partial"), threads));
+            }
+            log.accept(String.format("Started %d shard workers, %d threads each", workers.size(), threads));
+
+            List<FileSummary> summaries = new ArrayList<>(files.size());
+            for (int i = 0; i < workers.size(); i++) {
+                int exitCode = workers.get(i).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Shard worker " + i + " failed with exit code " + exitCode);
+                }
+                List<FileSummary> partial = ShardWorker.read(directory.resolve("shard" + i + ".partial"));
+                log.accept(String.format("Shard %d: %d files, %d parsed", i, parts.get(i).size(), partial.size()));
+                summaries.addAll(partial);
+            }
+            return summaries;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shard workers");
+        } finally {
+            for (Process worker : workers) {
+                worker.destroyForcibly();
+            }
+            deleteDirectory(directory);
+        }
+    }
+
+    private Process start(Path list, Path partial, int threads) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(Arrays.asList(java,
+            "-XX:MaxRAMPercentage=" + Math.max(1, MEMORY_PERCENT / shards),
+            "-cp", workerClasspath(),
+            ShardWorker.class.getName(), list.toString(), partial.toString(), Integer.toString(threads)));
+        return new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+
+    /*
+     * Launched normally, the system class loader holds this tool and
+     * java.class.path is right. Under exec:java or in a container it names
+     * only the launcher, so the URLs of the loaders between this class and
+     * the system loader are used instead.
+     */
+    static String workerClasspath() {
+        String configured = System.getProperty(CLASSPATH_PROPERTY);
+        if (configured != null && !configured.isEmpty()) {
+            return configured;
+        }
+        ClassLoader system = ClassLoader.getSystemClassLoader();
+        Set<String> entries = new LinkedHashSet<>();
+        for (ClassLoader loader = ShardWorker.class.getClassLoader(); loader != null && loader != system;
+                loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    if (url.getProtocol().equals("file")) {
+                        try {
+                            entries.add(Paths.get(url.toURI()).toString());
+                        } catch (URISyntaxException | IllegalArgumentException e) {
+                            // Not a local path; a worker could not load from it either
+                        }
+                    }
+                }
+            }
+        }
+        return entries.isEmpty() ? System.getProperty("java.class.path") : String.join(File.pathSeparator, entries);
+    }
+
+    // Longest-processing-time first, with file size standing in for parse time
+    private List<List<Path>> balance(List<Path> files) {
+        int count = Math.max(1, Math.min(shards, files.size()));
+        long[] sizes = new long[files.size()];
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = new File(files.get(i).toString()).length();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+
+        List<List<Path>> parts = new ArrayList<>(count);
+        long[] loads = new long[count];
+        for (int s = 0; s < count; s++) {
+            parts.add(new ArrayList<>());
+        }
+        for (int i : order) {
+            int lightest = 0;
+            for (int s = 1; s < count; s++) {
+                if (loads[s] < loads[lightest]) {
+                    lightest = s;
+                }
+            }
+            parts.get(lightest).add(files.get(i));
+            loads[lightest] += sizes[i];
+        }
+        return parts;
+    }
+
+    private static void deleteDirectory(Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.tools;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parallel directory traversal on a single fork-join pool. Each directory is
+ * one task; subdirectories are forked so idle workers steal them, and
+ * matching files are handed to the consumer on the worker that found them.
+ * A directory that cannot be listed fails the walk: the files in it would
+ * otherwise silently drop out of the analysis.
+ */
+final class SourceWalker {
+    static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(
+        Arrays.asList(".git", "node_modules", "target/classes", "target/test-classes"));
+
+    private final ForkJoinPool pool;
+    private final List<PathMatcher> excludes = new ArrayList<>();
+    private final AtomicInteger directories = new AtomicInteger();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private long elapsedMillis;
+
+    /*
+     * Exclude patterns are globs matched against directory paths relative to
+     * the root, at any depth unless they start with '/': "target" skips every
+     * target directory, "/build" only the top-level one.
+     */
+    SourceWalker(ForkJoinPool pool, List<String> excludePatterns) {
+        this.pool = pool;
+        for (String pattern : excludePatterns) {
+            String glob = pattern.endsWith("/") ? pattern.substring(0, pattern.length() - 1) : pattern;
+            glob = glob.startsWith("/") ? glob.substring(1) : "{" + glob + ",**/" + glob + "}";
+            excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+    }
+
+    void walk(Path root, String suffix, Consumer<Path> consumer) throws IOException {
+        long start = System.nanoTime();
+        Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+        pool.invoke(new DirectoryTask(root, root, suffix, consumer, failures));
+        elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (!failures.isEmpty()) {
+            IOException first = failures.poll();
+            IOException failure = new IOException(String.format("Could not read %d directories under %s, first: %s",
+                failures.size() + 1, root, first.getMessage()), first);
+            for (IOException other : failures) {
+                failure.addSuppressed(other);
+            }
+            throw failure;
+        }
+    }
+
+    String report() {
+        return String.format("Traversal: %d files in %d directories, %d ms, %d threads, %d steals, %d errors",
+            files.get(), directories.get(), elapsedMillis, pool.getParallelism(), pool.getStealCount(), errors.get());
+    }
+
+    boolean isExcluded(Path root, Path directory) {
+        if (excludes.isEmpty() || directory.equals(root)) {
+            return false;
+        }
+        Path relative = root.relativize(directory);
+        for (PathMatcher matcher : excludes) {
+            if (matcher.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path root;
+        private final Path directory;
+        private final String suffix;
+        private final Consumer<Path> consumer;
+        private final Queue<IOException> failures;
+
+        DirectoryTask(Path root, Path directory, String suffix, Consumer<Path> consumer,
+                Queue<IOException> failures) {
+            this.root = root;
+            this.directory = directory;
+            this.suffix = suffix;
+            this.consumer = consumer;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            directories.incrementAndGet();
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        if (!isExcluded(root, entry)) {
+                            DirectoryTask task = new DirectoryTask(root, entry, suffix, consumer, failures);
+                            task.fork();
+                            subtasks.add(task);
+                        }
+                    } else if (attrs.isRegularFile() && entry.getFileName().toString().endsWith(suffix)) {
+                        files.incrementAndGet();
+                        consumer.accept(entry);
+                    }
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                failures.add(e);
+            }
+            for (DirectoryTask task : subtasks) {
+                task.join();
+            }
+        }
+    }
+}
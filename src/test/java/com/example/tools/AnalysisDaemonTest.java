@@ -0,0 +1,149 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the protocol through handle() with the update thread not started,
+ * so every update happens exactly when the test asks for it.
+ */
+public class AnalysisDaemonTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void answersProtocolCommands() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/A.java", "package a;", "public class A { B b; }");
+        write(root, "a/B.java", "package a;", "public class B {}");
+
+        try (AnalysisDaemon daemon = daemon(root)) {
+            assertEquals("OK classes=2 edges=1 files=2 version=1", send(daemon, "STATUS"));
+            assertEquals("OK 2\n"
+                    + "a.A\t" + file(root, "a/A.java") + "\n"
+                    + "a.B\t" + file(root, "a/B.java") + "\n"
+                    + "UNKNOWN x.Y\n"
+                    + "END",
+                send(daemon, "QUERY a.A x.Y"));
+            assertEquals("ERROR unknown command FOO", send(daemon, "FOO"));
+            assertEquals("", send(daemon, "  "));
+
+            StringWriter out = new StringWriter();
+            assertFalse(daemon.handle("SHUTDOWN", out));
+            assertEquals("OK\n", out.toString());
+        }
+    }
+
+    @Test
+    public void editWithSameDeclarationsOnlyReresolvesItsEdges() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/A.java", "package a;", "public class A { B b; }");
+        write(root, "a/B.java", "package a;", "public class B {}");
+        write(root, "a/C.java", "package a;", "public class C {}");
+
+        try (AnalysisDaemon daemon = daemon(root)) {
+            write(root, "a/A.java", "package a;", "public class A { C c; }");
+            assertTrue(update(daemon, file(root, "a/A.java")).contains("(edges only)"));
+
+            assertEquals("OK classes=3 edges=1 files=3 version=2", send(daemon, "STATUS"));
+            assertTrue(send(daemon, "QUERY a.A").startsWith("OK 2\na.A\t" + file(root, "a/A.java") + "\n"
+                + "a.C\t" + file(root, "a/C.java") + "\n"));
+        }
+    }
+
+    @Test
+    public void newDeclarationReresolvesUnchangedFiles() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/A.java", "package a;", "public class A { D d; }");
+
+        try (AnalysisDaemon daemon = daemon(root)) {
+            assertEquals("OK classes=1 edges=0 files=1 version=1", send(daemon, "STATUS"));
+
+            // A is not touched, but its reference to D only resolves now
+            write(root, "a/D.java", "package a;", "public class D {}");
+            assertTrue(update(daemon, file(root, "a/D.java")).contains("(declarations changed)"));
+            assertEquals("OK classes=2 edges=1 files=2 version=2", send(daemon, "STATUS"));
+
+            Files.delete(root.resolve("a/D.java"));
+            assertTrue(update(daemon, file(root, "a/D.java")).contains("(declarations changed)"));
+            assertEquals("OK classes=1 edges=0 files=1 version=3", send(daemon, "STATUS"));
+        }
+    }
+
+    @Test
+    public void updateSummarizesLikeTheInitialBuild() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/A.java", "package a;", "public class A { B b; }");
+        write(root, "a/B.java", "package a;", "public class B {}");
+
+        try (AnalysisDaemon daemon = daemon(root)) {
+            // The parser rejects the file; the scanner still knows A
+            write(root, "a/A.java", "package a;", "public class A { B b; void f() { #; } }");
+            update(daemon, file(root, "a/A.java"));
+            String updated = send(daemon, "STATUS");
+
+            try (AnalysisDaemon fresh = daemon(root)) {
+                assertEquals(send(fresh, "STATUS").replace("version=1", "version=2"), updated);
+            }
+            assertEquals("OK classes=2 edges=0 files=2 version=2", updated);
+        }
+    }
+
+    private AnalysisDaemon daemon(Path root) throws IOException {
+        AnalysisDaemon daemon = new AnalysisDaemon(root, SourceWalker.DEFAULT_EXCLUDES, temp.newFolder().toPath());
+        daemon.setCacheFile(null);
+        quietly(() -> daemon.rebuild());
+        return daemon;
+    }
+
+    // Returns the status line the update printed
+    private static String update(AnalysisDaemon daemon, Path file) throws IOException {
+        return quietly(() -> daemon.update(Collections.singleton(file)));
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static String quietly(Action action) throws IOException {
+        PrintStream err = System.err;
+        ByteArrayOutputStream status = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(status, true));
+        try {
+            action.run();
+        } finally {
+            System.setErr(err);
+        }
+        return status.toString();
+    }
+
+    private static String send(AnalysisDaemon daemon, String line) throws IOException {
+        StringWriter out = new StringWriter();
+        assertTrue(daemon.handle(line, out));
+        return out.toString().trim();
+    }
+
+    private static Path file(Path root, String file) {
+        return root.resolve(file).toAbsolutePath().normalize();
+    }
+
+    private static void write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.tools;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BytecodeInputTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @After
+    public void shutDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void malformedClassFileFailsTheRun() throws IOException {
+        Path classes = temp.newFolder("target", "classes").toPath();
+        Files.write(classes.resolve("Broken.class"), new byte[] {(byte) 0xCA, (byte) 0xFE, 0, 1});
+        assertFails(classes, "Broken.class");
+    }
+
+    @Test
+    public void unreadableJarFailsTheRun() throws IOException {
+        Path jar = temp.newFile("broken.jar").toPath();
+        Files.write(jar, new byte[] {1, 2, 3});
+        assertFails(jar, "broken.jar");
+    }
+
+    @Test
+    public void testClassesKeepWhatOnlyTestsUse() throws IOException {
+        Path root = temp.newFolder("project").toPath();
+        Path lib = write(root, "src/main/java/a/Lib.java", "package a;", "public class Lib {}");
+        Path target = write(root, "src/main/java/a/Target.java", "package a;", "public class Target { Lib lib; }");
+        Path test = write(root, "src/test/java/a/LibTest.java", "package a;", "public class LibTest { Lib lib = new Lib(); }");
+        Path classes = root.resolve("target/classes");
+        TestCompiler.compile(classes, Collections.<Path>emptyList(), lib, target);
+        TestCompiler.compile(root.resolve("target/test-classes"), Collections.singletonList(classes), test);
+
+        assertEquals(Arrays.asList(classes, root.resolve("target/test-classes")), BytecodeInput.findClassRoots(root));
+        for (boolean bytecode : new boolean[] {false, true}) {
+            try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+                analyzer.setCacheFile(null);
+                analyzer.setProfileFile(null);
+                analyzer.setBytecodeInput(bytecode, null);
+                DeletionPlan plan = analyzer.analyze(root.toString()).query(Collections.singleton("a.Target"));
+                assertEquals("bytecode " + bytecode, Collections.singleton("a.Target"), plan.getDeletableClasses().keySet());
+            }
+        }
+    }
+
+    private void assertFails(Path classRoot, String name) throws IOException {
+        try {
+            new BytecodeInput(pool, Collections.<String>emptyList())
+                .summarize(Collections.singletonList(classRoot), temp.getRoot().toPath());
+            fail("summarize skipped " + name);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Could not read 1 class files") && e.getMessage().contains(name));
+        }
+    }
+
+    private static Path write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+        return path;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassDependencyAnalyzerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void secondAnalysisSeesOnlyItsOwnTree() throws IOException {
+        Path first = temp.newFolder("first").toPath();
+        write(first, "a/A.java", "package a;", "public class A { B b; }");
+        write(first, "a/B.java", "package a;", "public class B {}");
+        Path second = temp.newFolder("second").toPath();
+        write(second, "c/C.java", "package c;", "public class C {}");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            AnalysisSnapshot snapshot = analyzer.analyze(first.toString());
+            assertEquals(2, snapshot.getClassCount());
+            assertEquals(1, snapshot.getEdgeCount());
+
+            snapshot = analyzer.analyze(second.toString());
+            assertEquals(1, snapshot.getClassCount());
+            assertEquals(0, snapshot.getEdgeCount());
+            assertEquals(1, snapshot.getFileCount());
+            assertTrue(snapshot.containsClass("c.C"));
+            assertFalse(snapshot.containsClass("a.A"));
+        }
+    }
+
+    @Test
+    public void reactorModeOnlyResolvesIntoVisibleModules() throws IOException {
+        Path root = temp.newFolder("reactor").toPath();
+        write(root, "pom.xml", "<project><groupId>g</groupId><artifactId>parent</artifactId><version>1</version>",
+            "<packaging>pom</packaging><modules><module>a</module><module>b</module><module>c</module></modules></project>");
+        write(root, "a/pom.xml", "<project><parent><groupId>g</groupId><artifactId>parent</artifactId><version>1</version></parent>",
+            "<artifactId>a</artifactId></project>");
+        write(root, "b/pom.xml", "<project><parent><groupId>g</groupId><artifactId>parent</artifactId><version>1</version></parent>",
+            "<artifactId>b</artifactId></project>");
+        write(root, "c/pom.xml", "<project><parent><groupId>g</groupId><artifactId>parent</artifactId><version>1</version></parent>",
+            "<artifactId>c</artifactId><dependencies><dependency><groupId>g</groupId><artifactId>a</artifactId>",
+            "<version>1</version></dependency></dependencies></project>");
+        write(root, "a/src/main/java/p/Util.java", "package p;", "public class Util {}");
+        write(root, "b/src/main/java/q/Stranger.java", "package q;", "import p.Util;", "public class Stranger { Util u; }");
+        write(root, "c/src/main/java/r/User.java", "package r;", "import p.Util;", "public class User { Util u; }");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            assertEquals(2, analyzer.analyze(root.toString()).getEdgeCount());
+
+            analyzer.setReactorAware(true);
+            AnalysisSnapshot snapshot = analyzer.analyze(root.toString());
+            assertEquals(1, snapshot.getEdgeCount());
+            // Only c sees a, so only r.User keeps p.Util alive
+            assertEquals(new HashSet<>(Arrays.asList("r.User", "p.Util")),
+                snapshot.query(Collections.singleton("r.User")).getDeletableClasses().keySet());
+        }
+    }
+
+    @Test
+    public void symbolSolvingIgnoresFieldsNamedLikeTypes() throws IOException {
+        Path root = temp.newFolder("shadow").toPath();
+        write(root, "a/Util.java", "package a;", "public class Util { static int size() { return 0; } }");
+        write(root, "a/User.java", "package a;", "public class User { String Util = \"\"; int f() { return Util.length(); } }");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            assertEquals(1, analyzer.analyze(root.toString()).getEdgeCount());
+
+            analyzer.setSymbolSolving(true);
+            assertEquals(0, analyzer.analyze(root.toString()).getEdgeCount());
+        }
+    }
+
+    @Test
+    public void shardedRunBuildsTheSameGraph() throws IOException {
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            AnalysisSnapshot single = analyzer.analyze("TestProject");
+
+            analyzer.setShards(2);
+            AnalysisSnapshot sharded = analyzer.analyze("TestProject");
+            assertEquals(single.getClassCount(), sharded.getClassCount());
+            assertEquals(single.getEdgeCount(), sharded.getEdgeCount());
+            Set<String> targets = new HashSet<>(Arrays.asList("root.cls.TargetA", "root.cls.TargetB"));
+            assertEquals(single.query(targets).getDeletableClasses(), sharded.query(targets).getDeletableClasses());
+        }
+    }
+
+    @Test
+    public void shardedRunKeepsFilesTheParserRejects() throws IOException {
+        Path root = temp.newFolder("broken").toPath();
+        write(root, "a/Broken.java", "package a;", "public class Broken { void f() { #; } }");
+        write(root, "a/Util.java", "package a;", "public class Util {}");
+        write(root, "a/User.java", "package a;", "public class User { Broken b; Util u; }");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            AnalysisSnapshot single = analyzer.analyze(root.toString());
+            assertTrue(single.containsClass("a.Broken"));
+
+            analyzer.setShards(2);
+            AnalysisSnapshot sharded = analyzer.analyze(root.toString());
+            assertTrue(sharded.containsClass("a.Broken"));
+            assertEquals(single.getClassCount(), sharded.getClassCount());
+            assertEquals(single.getEdgeCount(), sharded.getEdgeCount());
+            assertEquals(single.query(Collections.singleton("a.Broken")).getDeletableClasses(),
+                sharded.query(Collections.singleton("a.Broken")).getDeletableClasses());
+        }
+    }
+
+    private static void write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+    }
+}
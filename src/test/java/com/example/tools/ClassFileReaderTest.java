@@ -0,0 +1,164 @@
+package com.example.tools;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every edge in bytecode mode comes from this reader, so the fixture is
+ * compiled by javac rather than written by hand.
+ */
+public class ClassFileReaderTest {
+    @ClassRule
+    public static TemporaryFolder temp = new TemporaryFolder();
+
+    private static Path classes;
+
+    @BeforeClass
+    public static void compileFixture() throws IOException {
+        Path sources = temp.newFolder("src").toPath();
+        List<Path> files = new ArrayList<>();
+        files.add(write(sources, "Base", "public class Base<T> {}"));
+        files.add(write(sources, "Api", "public interface Api {}"));
+        files.add(write(sources, "Elem", "public class Elem {}"));
+        files.add(write(sources, "Key", "public class Key {}"));
+        files.add(write(sources, "Gen", "public class Gen {}"));
+        files.add(write(sources, "Arg", "public class Arg {}"));
+        files.add(write(sources, "Used", "public class Used {}"));
+        files.add(write(sources, "Thrown", "public class Thrown extends Exception {}"));
+        files.add(write(sources, "Mode", "public enum Mode { ON, OFF }"));
+        files.add(write(sources, "Marker",
+            "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)",
+            "public @interface Marker { Class<?> type(); Mode mode(); }"));
+        files.add(write(sources, "Fixture",
+            "import java.util.List;",
+            "import java.util.Map;",
+            "@Marker(type = Arg.class, mode = Mode.ON)",
+            "public class Fixture extends Base<Elem> implements Api {",
+            "    Map<Key, List<Gen>> map;",
+            "    static class Nested { Elem elem; }",
+            "    Runnable task = new Runnable() { public void run() { new Used(); } };",
+            "    void fail() throws Thrown {}",
+            "    public static void main(String[] args) {}",
+            "}"));
+        StringBuilder big = new StringBuilder("public class Big { Key key;");
+        for (int i = 0; i < 1000; i++) {
+            big.append(" String s").append(i).append(" = \"");
+            for (int c = 0; c < 8; c++) {
+                big.append("constant").append(i);
+            }
+            big.append("\";");
+        }
+        files.add(write(sources, "Big", big.append(" }").toString()));
+        classes = temp.newFolder("classes").toPath();
+        TestCompiler.compile(classes, Collections.<Path>emptyList(), files.toArray(new Path[0]));
+    }
+
+    @Test
+    public void readsSupertypesGenericSignaturesAndAnnotations() throws IOException {
+        ClassFileReader reader = read("Fixture");
+        assertEquals("f/Fixture", reader.getClassName());
+        assertEquals("Fixture.java", reader.getSourceFile());
+        assertTrue(reader.hasMainMethod());
+        // Elem, Key and Gen only appear in generic signatures; Arg and Mode only in annotation values
+        assertTrue(reader.getReferences().containsAll(Arrays.asList(
+            "f/Base", "f/Api", "f/Elem", "f/Key", "f/Gen", "f/Marker", "f/Arg", "f/Mode", "f/Thrown",
+            "java/util/Map", "java/util/List")));
+        assertFalse(reader.getReferences().contains("f/Used"));
+        assertEquals(Collections.singleton("f.Marker"), reader.getAnnotations());
+    }
+
+    @Test
+    public void readsNestedAndAnonymousClasses() throws IOException {
+        ClassFileReader nested = read("Fixture$Nested");
+        assertEquals("f/Fixture$Nested", nested.getClassName());
+        assertEquals("Fixture.java", nested.getSourceFile());
+        assertFalse(nested.hasMainMethod());
+        assertTrue(nested.getReferences().contains("f/Elem"));
+        assertTrue(nested.getAnnotations().isEmpty());
+
+        ClassFileReader anonymous = read("Fixture$1");
+        assertEquals("f/Fixture$1", anonymous.getClassName());
+        assertEquals("Fixture.java", anonymous.getSourceFile());
+        assertTrue(anonymous.getReferences().containsAll(Arrays.asList("f/Used", "java/lang/Runnable", "f/Fixture")));
+    }
+
+    @Test
+    public void readsAnnotationTypesAndEnums() throws IOException {
+        assertTrue(read("Marker").getReferences().containsAll(Arrays.asList("f/Mode", "java/lang/annotation/Annotation")));
+        assertEquals(Collections.singleton("java.lang.annotation.Retention"), read("Marker").getAnnotations());
+        assertTrue(read("Mode").getReferences().contains("java/lang/Enum"));
+    }
+
+    @Test
+    public void readsMappedClassFileAboveTheMapThreshold() throws IOException {
+        Path file = classes.resolve("f/Big.class");
+        assertTrue(Files.size(file) > 1 << 16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ClassFileReader reader = ClassFileReader.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            assertEquals("f/Big", reader.getClassName());
+            assertTrue(reader.getReferences().contains("f/Key"));
+        }
+
+        // The same file through BytecodeInput, which maps it itself
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Collection<FileSummary> summaries = new BytecodeInput(pool, Collections.<String>emptyList())
+                .summarize(Collections.singletonList(classes), temp.newFolder().toPath());
+            FileSummary big = null;
+            for (FileSummary summary : summaries) {
+                if ("f.Big".equals(summary.getPrimaryType())) {
+                    big = summary;
+                }
+            }
+            assertTrue(big != null && Arrays.asList(big.getReferencedTypes()).contains("f.Key"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void classWithoutSourceFileAttribute() throws IOException {
+        Path sources = temp.newFolder().toPath();
+        Path output = temp.newFolder().toPath();
+        Path file = write(sources, "Bare", "public class Bare {}");
+        ToolProvider.getSystemJavaCompiler().run(null, null, null,
+            "-g:none", "-proc:none", "-d", output.toString(), file.toString());
+        assertNull(ClassFileReader.read(ByteBuffer.wrap(Files.readAllBytes(output.resolve("f/Bare.class"))))
+            .getSourceFile());
+    }
+
+    private static ClassFileReader read(String name) throws IOException {
+        return ClassFileReader.read(ByteBuffer.wrap(Files.readAllBytes(classes.resolve("f/" + name + ".class"))));
+    }
+
+    private static Path write(Path root, String name, String... lines) throws IOException {
+        Path path = root.resolve("f/" + name + ".java");
+        Files.createDirectories(path.getParent());
+        List<String> content = new ArrayList<>();
+        content.add("package f;");
+        content.addAll(Arrays.asList(lines));
+        Files.write(path, content);
+        return path;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.tools;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The lexical scanner has to find exactly the declarations the parser
+ * finds, or discovery and extraction disagree about which classes exist.
+ */
+public class DeclarationScannerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final JavaParser parser = new JavaParser(new ParserConfiguration()
+        .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17));
+
+    @Test
+    public void matchesParserOnTestProject() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(Paths.get("TestProject"))) {
+            files = walk.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+        assertFalse("TestProject has no sources", files.isEmpty());
+        for (Path file : files) {
+            assertSameDeclarations(file);
+        }
+    }
+
+    @Test
+    public void findsEnumsRecordsAndAnnotationTypes() throws IOException {
+        Path file = temp.newFolder().toPath().resolve("Kinds.java");
+        Files.write(file, Arrays.asList(
+            "package a.b;",
+            "import java.util.List;",
+            "import static java.util.Collections.emptyList;",
+            "public class Kinds {",
+            "    enum Mode { ON, OFF; void run() { class Local {} } }",
+            "    record Point(int x, int y) {}",
+            "    @interface Marker { String value() default \"}\"; }",
+            "    Runnable r = new Runnable() { public void run() {} };",
+            "}",
+            "interface Other {}"));
+        assertSameDeclarations(file);
+        FileSummary summary = DeclarationScanner.scan(file);
+        assertArrayEquals(new String[] {"a.b.Kinds", "a.b.Kinds.Mode", "a.b.Kinds.Point", "a.b.Kinds.Marker", "a.b.Other"},
+            summary.getDeclaredTypes());
+    }
+
+    private void assertSameDeclarations(Path file) throws IOException {
+        FileSummary scanned = DeclarationScanner.scan(file);
+        assertNotNull("scanner rejected " + file, scanned);
+        CompilationUnit cu = parser.parse(file).getResult().orElseThrow(() -> new AssertionError("parser rejected " + file));
+
+        assertEquals(file.toString(), cu.getPackageDeclaration().map(pkg -> pkg.getNameAsString()).orElse(""),
+            scanned.getPackageName());
+        List<String> imports = new ArrayList<>();
+        cu.getImports().stream().filter(imp -> !imp.isStatic())
+            .forEach(imp -> imports.add(imp.getNameAsString() + (imp.isAsterisk() ? ".*" : "")));
+        assertEquals(file.toString(), imports, Arrays.asList(scanned.getImports()));
+
+        List<String> declared = new ArrayList<>();
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            boolean local = type.isClassOrInterfaceDeclaration() && type.asClassOrInterfaceDeclaration().isLocalClassDeclaration()
+                || type.isRecordDeclaration() && type.asRecordDeclaration().isLocalRecordDeclaration();
+            if (!local) {
+                declared.add(type.getFullyQualifiedName().orElse(""));
+            }
+        }
+        assertEquals(file.toString(), declared, Arrays.asList(scanned.getDeclaredTypes()));
+
+        cu.setStorage(file);
+        String primary = cu.getPrimaryType().flatMap(type -> type.getFullyQualifiedName()).orElse(null);
+        assertEquals(file.toString(), primary, scanned.getPrimaryType());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The cascade deletes files, not classes: a file goes only when none of its
+ * classes is still used from outside it.
+ */
+public class DeletionCascadeTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void keepsFileWhoseOuterClassIsStillUsed() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/Main.java", "package a;", "public class Main { Object o = new Outer(); }");
+        write(root, "a/Outer.java", "package a;", "public class Outer { static class Inner {} }");
+        write(root, "a/T.java", "package a;", "public class T { Outer.Inner x; }");
+
+        try (ClassDependencyAnalyzer analyzer = analyzer()) {
+            DeletionPlan plan = analyzer.analyze(root.toString()).query(Collections.singleton("a.T"));
+            assertEquals(Collections.singleton("a.T"), plan.getDeletableClasses().keySet());
+            analyzer.delete(plan);
+        }
+        assertFalse(Files.exists(root.resolve("a/T.java")));
+        assertTrue(Files.exists(root.resolve("a/Outer.java")));
+        assertTrue(Files.exists(root.resolve("a/Main.java")));
+    }
+
+    @Test
+    public void deletesFileOnceAllItsClassesAreFree() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/Main.java", "package a;", "public class Main { Object o = new Keep(); }");
+        write(root, "a/Keep.java", "package a;", "public class Keep {}");
+        write(root, "a/Outer.java", "package a;", "public class Outer { static class Inner {} }");
+        write(root, "a/T.java", "package a;", "public class T { Outer.Inner x; Outer y; }");
+
+        try (ClassDependencyAnalyzer analyzer = analyzer()) {
+            DeletionPlan plan = analyzer.analyze(root.toString()).query(Collections.singleton("a.T"));
+            assertEquals(new HashSet<>(Arrays.asList("a.T", "a.Outer", "a.Outer.Inner")),
+                plan.getDeletableClasses().keySet());
+            assertEquals(Arrays.asList("a.Outer.Inner", "a.T"), plan.getReason("a.Outer.Inner"));
+            assertEquals("a.Outer", plan.getReason("a.Outer").get(0));
+
+            // Three classes, two files: each file is deleted once, without a failed second attempt
+            PrintStream err = System.err;
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            System.setErr(new PrintStream(errors, true));
+            try {
+                analyzer.delete(plan);
+            } finally {
+                System.setErr(err);
+            }
+            assertEquals("", errors.toString());
+        }
+        assertFalse(Files.exists(root.resolve("a/T.java")));
+        assertFalse(Files.exists(root.resolve("a/Outer.java")));
+        assertTrue(Files.exists(root.resolve("a/Keep.java")));
+    }
+
+    @Test
+    public void cascadesThroughTestProject() throws IOException {
+        Set<String> targets = new HashSet<>(Arrays.asList("root.cls.TargetA", "root.cls.TargetB"));
+        try (ClassDependencyAnalyzer analyzer = analyzer()) {
+            DeletionPlan plan = analyzer.analyze("TestProject").query(targets);
+            assertEquals(new HashSet<>(Arrays.asList("root.cls.TargetA", "root.cls.TargetB",
+                    "dep.cls.TargetDep", "dep.cls.TargetSharedDep", "sub.dep.TargetSubDep")),
+                plan.getDeletableClasses().keySet());
+        }
+    }
+
+    private ClassDependencyAnalyzer analyzer() throws IOException {
+        ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath());
+        analyzer.setCacheFile(null);
+        analyzer.setProfileFile(null);
+        return analyzer;
+    }
+
+    private static void write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+    }
+}
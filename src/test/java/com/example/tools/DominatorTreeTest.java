@@ -0,0 +1,132 @@
+package com.example.tools;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the Lengauer-Tarjan tree against the definition: d dominates v
+ * when v is no longer reachable from the roots once d is gone.
+ */
+public class DominatorTreeTest {
+    private static final int CLASSES = 40;
+
+    @Test
+    public void matchesBruteForceOnRandomGraphs() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            int[][] adjacency = new int[CLASSES][];
+            for (int id = 0; id < CLASSES; id++) {
+                BitSet dependencies = new BitSet(CLASSES);
+                int degree = random.nextInt(4);
+                for (int i = 0; i < degree; i++) {
+                    dependencies.set(random.nextInt(CLASSES));
+                }
+                dependencies.clear(id);
+                adjacency[id] = dependencies.stream().toArray();
+            }
+            // Some classes share a file, as nested classes do
+            Path[] paths = new Path[CLASSES];
+            for (int id = 0; id < CLASSES; id++) {
+                paths[id] = Paths.get("F" + (random.nextInt(4) == 0 && id > 0 ? id - 1 : id) + ".java");
+            }
+            check(adjacency, paths, random);
+        }
+    }
+
+    private static void check(int[][] adjacency, Path[] paths, Random random) {
+        String[] names = new String[CLASSES];
+        for (int id = 0; id < CLASSES; id++) {
+            names[id] = String.format("c%02d", id);
+        }
+        ClassGraph graph = ClassGraph.build(names, adjacency);
+        Reachability files = Reachability.of(graph, paths);
+
+        // Edges as the tree sees them: dependencies, plus classes of one file pointing at each other
+        List<List<Integer>> edges = new ArrayList<>();
+        for (int id = 0; id < CLASSES; id++) {
+            List<Integer> out = new ArrayList<>();
+            for (int dependency : adjacency[id]) {
+                out.add(dependency);
+            }
+            for (int i = files.fileStart(id); i < files.fileEnd(id); i++) {
+                if (files.fileMember(i) != id) {
+                    out.add(files.fileMember(i));
+                }
+            }
+            edges.add(out);
+        }
+
+        // Enough roots that everything is reached, so the tree needs no DFS restarts
+        BitSet roots = new BitSet(CLASSES);
+        roots.set(random.nextInt(CLASSES));
+        BitSet reached;
+        while ((reached = reach(edges, roots, -1)).cardinality() < CLASSES) {
+            roots.set(reached.nextClearBit(0));
+        }
+
+        DominatorTree tree = DominatorTree.build(graph, files, roots);
+        BitSet[] without = new BitSet[CLASSES];
+        for (int d = 0; d < CLASSES; d++) {
+            without[d] = reach(edges, roots, d);
+        }
+        for (int d = 0; d < CLASSES; d++) {
+            BitSet subtree = new BitSet(CLASSES);
+            for (int v : tree.subtree(d)) {
+                subtree.set(v);
+            }
+            assertEquals(subtree.cardinality(), tree.subtreeSize(d));
+            for (int v = 0; v < CLASSES; v++) {
+                assertEquals("c" + d + " dominates c" + v, v == d || !without[d].get(v), subtree.get(v));
+            }
+        }
+        // The immediate dominator is the strict dominator every other strict dominator dominates
+        for (int v = 0; v < CLASSES; v++) {
+            int idom = tree.immediateDominator(v);
+            BitSet strict = new BitSet(CLASSES);
+            for (int d = 0; d < CLASSES; d++) {
+                if (d != v && !without[d].get(v)) {
+                    strict.set(d);
+                }
+            }
+            if (strict.isEmpty()) {
+                assertEquals(-1, idom);
+                continue;
+            }
+            assertTrue("c" + idom + " strictly dominates c" + v, idom >= 0 && strict.get(idom));
+            for (int d = strict.nextSetBit(0); d >= 0; d = strict.nextSetBit(d + 1)) {
+                assertTrue(d == idom || !without[d].get(idom));
+            }
+        }
+    }
+
+    // Classes reachable from the roots without passing through removed
+    private static BitSet reach(List<List<Integer>> edges, BitSet roots, int removed) {
+        BitSet visited = new BitSet(CLASSES);
+        int[] stack = new int[CLASSES];
+        int top = 0;
+        for (int id = roots.nextSetBit(0); id >= 0; id = roots.nextSetBit(id + 1)) {
+            if (id != removed) {
+                visited.set(id);
+                stack[top++] = id;
+            }
+        }
+        while (top > 0) {
+            for (int next : edges.get(stack[--top])) {
+                if (next != removed && !visited.get(next)) {
+                    visited.set(next);
+                    stack[top++] = next;
+                }
+            }
+        }
+        return visited;
+    }
+}
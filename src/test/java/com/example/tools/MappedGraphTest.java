@@ -0,0 +1,112 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A binary export read back through MappedGraph must match the graph it was
+ * written from, id for id.
+ */
+public class MappedGraphTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void readsBackExportedPlan() throws IOException {
+        AnalysisSnapshot snapshot = analyze();
+        DeletionPlan plan = snapshot.query(Collections.singleton("a.T"));
+        Path file = temp.newFile("plan.bin").toPath();
+        plan.export(file, GraphFormat.BINARY);
+
+        MappedGraph mapped = MappedGraph.open(file);
+        ClassGraph graph = snapshot.graph();
+        assertSameGraph(graph, mapped);
+        for (int id = 0; id < graph.size(); id++) {
+            String name = graph.name(id);
+            assertEquals(name, plan.getDeletableClasses().containsKey(name), mapped.isDeleted(id));
+            assertEquals(name, name.equals("a.T"), mapped.isTarget(id));
+        }
+        assertTrue(mapped.isDeleted(mapped.getId("a.Units.Gr\u00f6\u00dfe")));
+        assertFalse(mapped.isDeleted(mapped.getId("a.Main")));
+        assertEquals(-1, mapped.getId("a.Missing"));
+    }
+
+    @Test
+    public void readsBackSnapshotWithoutDeletionSet() throws IOException {
+        AnalysisSnapshot snapshot = analyze();
+        Path file = temp.newFile("graph.bin").toPath();
+        snapshot.export(file, GraphFormat.BINARY);
+
+        MappedGraph mapped = MappedGraph.open(file);
+        assertSameGraph(snapshot.graph(), mapped);
+        for (int id = 0; id < mapped.getClassCount(); id++) {
+            assertFalse(mapped.isDeleted(id));
+            assertFalse(mapped.isTarget(id));
+        }
+    }
+
+    private AnalysisSnapshot analyze() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/Main.java", "package a;", "public class Main {}");
+        // Multi-byte names leave the name blob off a multiple of 4
+        write(root, "a/Units.java", "package a;", "public class Units { static class Gr\u00f6\u00dfe {} static class \u00d1 {} }");
+        write(root, "a/T.java", "package a;", "public class T { Units.Gr\u00f6\u00dfe g; Units.\u00d1 n; }");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            AnalysisSnapshot snapshot = analyzer.analyze(root.toString());
+            assertTrue(snapshot.containsClass("a.Units.Gr\u00f6\u00dfe"));
+            return snapshot;
+        }
+    }
+
+    private static void assertSameGraph(ClassGraph graph, MappedGraph mapped) {
+        assertEquals(graph.size(), mapped.getClassCount());
+        assertEquals(graph.edgeCount(), mapped.getEdgeCount());
+        for (int id = 0; id < graph.size(); id++) {
+            String name = graph.name(id);
+            assertEquals(name, mapped.getName(id));
+            assertEquals(id, mapped.getId(name));
+
+            List<Integer> dependencies = new ArrayList<>();
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                dependencies.add(graph.dependencyAt(e));
+            }
+            List<Integer> mappedDependencies = new ArrayList<>();
+            for (int i = 0; i < mapped.getDependencyCount(id); i++) {
+                mappedDependencies.add(mapped.getDependency(id, i));
+            }
+            assertEquals(name, dependencies, mappedDependencies);
+
+            List<Integer> users = new ArrayList<>();
+            for (int e = graph.userStart(id); e < graph.userEnd(id); e++) {
+                users.add(graph.userAt(e));
+            }
+            List<Integer> mappedUsers = new ArrayList<>();
+            for (int i = 0; i < mapped.getUserCount(id); i++) {
+                mappedUsers.add(mapped.getUser(id, i));
+            }
+            assertEquals(name, users, mappedUsers);
+        }
+    }
+
+    private static void write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tree shaking from the three kinds of entry point, and the parallel
+ * marking against a plain sequential search.
+ */
+public class ReachabilityTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void keepsWhatEntryPointsReach() throws IOException {
+        Path root = temp.newFolder("src").toPath();
+        write(root, "a/App.java", "package a;",
+            "public class App { public static void main(String[] args) { new Service(); } }");
+        write(root, "a/Service.java", "package a;", "public class Service { Outer.Inner inner; }");
+        // Outer is reached through its nested class; both live in one file
+        write(root, "a/Outer.java", "package a;", "public class Outer { static class Inner {} }");
+        write(root, "a/plug/Loader.java", "package a.plug;", "public class Loader {}");
+        write(root, "b/Controller.java", "package b;", "public @interface Controller {}");
+        write(root, "a/Web.java", "package a;", "import b.Controller;",
+            "@Controller public class Web { Model model; }");
+        write(root, "a/Model.java", "package a;", "public class Model {}");
+        // Unreachable, but each keeps the other alive in a reference count
+        write(root, "a/CycleA.java", "package a;", "public class CycleA { CycleB b; }");
+        write(root, "a/CycleB.java", "package a;", "public class CycleB { CycleA a; }");
+        write(root, "com/example/tools/Helper.java", "package com.example.tools;", "public class Helper {}");
+
+        try (ClassDependencyAnalyzer analyzer = new ClassDependencyAnalyzer(temp.newFolder().toPath())) {
+            analyzer.setCacheFile(null);
+            analyzer.setProfileFile(null);
+            AnalysisSnapshot snapshot = analyzer.analyze(root.toString());
+
+            DeletionPlan mainOnly = snapshot.findUnreachable(Collections.<String>emptyList(),
+                Collections.<String>emptyList());
+            assertEquals(new HashSet<>(Arrays.asList("a.plug.Loader", "b.Controller", "a.Web", "a.Model",
+                    "a.CycleA", "a.CycleB")),
+                mainOnly.getDeletableClasses().keySet());
+            assertEquals(Collections.singletonList("com.example.tools.Helper"), mainOnly.getProtectedClasses());
+
+            DeletionPlan all = snapshot.findUnreachable(Arrays.asList("a.plug.*", "x.**"),
+                Collections.singletonList("Controller"));
+            assertEquals(new HashSet<>(Arrays.asList("a.CycleA", "a.CycleB")), all.getDeletableClasses().keySet());
+            assertEquals(Collections.singletonList("com.example.tools.Helper"), all.getProtectedClasses());
+            assertEquals(Collections.singletonList("x.**"), all.getUnknownTargets());
+
+            // A qualified annotation name matches through the import
+            DeletionPlan qualified = snapshot.findUnreachable(Collections.<String>emptyList(),
+                Collections.singletonList("b.Controller"));
+            assertEquals(new HashSet<>(Arrays.asList("a.plug.Loader", "a.CycleA", "a.CycleB")),
+                qualified.getDeletableClasses().keySet());
+        }
+    }
+
+    @Test
+    public void parallelMarkingMatchesSequentialSearch() {
+        Random random = new Random(11);
+        int classes = 20000;
+        String[] names = new String[classes];
+        for (int id = 0; id < classes; id++) {
+            names[id] = String.format("c%05d", id);
+        }
+        for (int round = 0; round < 5; round++) {
+            // Class 0 fans out to thousands, so frontiers span several chunks and bitset words
+            int[][] adjacency = new int[classes][];
+            adjacency[0] = new int[3000];
+            for (int i = 0; i < adjacency[0].length; i++) {
+                adjacency[0][i] = 1 + random.nextInt(classes - 1);
+            }
+            adjacency[0] = Arrays.stream(adjacency[0]).distinct().sorted().toArray();
+            for (int id = 1; id < classes; id++) {
+                BitSet dependencies = new BitSet(classes);
+                int degree = random.nextInt(3);
+                for (int i = 0; i < degree; i++) {
+                    dependencies.set(random.nextInt(classes));
+                }
+                dependencies.clear(id);
+                adjacency[id] = dependencies.stream().toArray();
+            }
+            Path[] paths = new Path[classes];
+            for (int id = 0; id < classes; id++) {
+                paths[id] = Paths.get("F" + (random.nextInt(5) == 0 && id > 0 ? id - 1 : id) + ".java");
+            }
+            ClassGraph graph = ClassGraph.build(names, adjacency);
+            Reachability reachability = Reachability.of(graph, paths);
+
+            BitSet roots = new BitSet(classes);
+            roots.set(0);
+            roots.set(random.nextInt(classes));
+            assertEquals(search(graph, reachability, roots), reachability.mark(roots));
+        }
+    }
+
+    private static BitSet search(ClassGraph graph, Reachability reachability, BitSet roots) {
+        BitSet visited = new BitSet(graph.size());
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int id = roots.nextSetBit(0); id >= 0; id = roots.nextSetBit(id + 1)) {
+            visited.set(id);
+            queue.add(id);
+        }
+        while (!queue.isEmpty()) {
+            int id = queue.poll();
+            for (int e = graph.dependencyStart(id); e < graph.dependencyEnd(id); e++) {
+                int dependency = graph.dependencyAt(e);
+                if (!visited.get(dependency)) {
+                    visited.set(dependency);
+                    queue.add(dependency);
+                }
+            }
+            for (int i = reachability.fileStart(id); i < reachability.fileEnd(id); i++) {
+                int member = reachability.fileMember(i);
+                if (!visited.get(member)) {
+                    visited.set(member);
+                    queue.add(member);
+                }
+            }
+        }
+        return visited;
+    }
+
+    private static void write(Path root, String file, String... lines) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, Arrays.asList(lines));
+    }
+}
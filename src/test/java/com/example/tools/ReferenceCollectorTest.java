@@ -0,0 +1,91 @@
+package com.example.tools;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ReferenceCollectorTest {
+    private final JavaParser parser = new JavaParser(new ParserConfiguration()
+        .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17));
+
+    @Test
+    public void collectsEveryReferenceKind() {
+        Set<String> references = collect(
+            "package p;",
+            "import static q.Util.helper;",
+            "import static q.Consts.*;",
+            "import java.util.List;",
+            "@Marker",
+            "public class Sample<T extends Bound> extends Base implements Api, Other<Arg> {",
+            "    @Named(\"x\") Field field;",
+            "    Map<Key, List<Value>> map;",
+            "    <M extends Limit> M generic(Param param, M m, T t) throws Problem {",
+            "        Local local = new Created();",
+            "        Object o = (Cast) param;",
+            "        boolean b = o instanceof Checked;",
+            "        Class<?> c = Literal.class;",
+            "        Runnable r = Referenced::run;",
+            "        local.call();",
+            "        param.call();",
+            "        a.b.Qualified.staticCall();",
+            "        int size = Constants.SIZE;",
+            "        java.util.function.Function<String, String> f = s -> s.trim();",
+            "        try { } catch (Caught e) { e.getMessage(); }",
+            "        return m;",
+            "    }",
+            "}");
+        assertEquals(new HashSet<>(Arrays.asList(
+            // static imports
+            "q.Util", "q.Consts",
+            // annotations
+            "Marker", "Named",
+            // bounds, extends and implements, type arguments
+            "Bound", "Base", "Api", "Other", "Arg", "Limit",
+            // field, parameter, result, throws and local types, nested generics
+            "Field", "Map", "Key", "List", "Value", "Param", "Problem", "Local", "Object", "Runnable", "Class",
+            "java.util.function.Function", "String", "Caught",
+            // new, casts, instanceof, class literals, method references
+            "Created", "Cast", "Checked", "Literal", "Referenced",
+            // qualified names and type scopes of calls and field accesses
+            "a.b.Qualified", "Constants")), references);
+    }
+
+    @Test
+    public void leavesOutTypeVariablesAndLocals() {
+        Set<String> references = collect(
+            "class Scoped<T> {",
+            "    T field;",
+            "    <M> void method(M m, T t, Param param) {",
+            "        Local local = null;",
+            "        local.run();",
+            "        param.run();",
+            "        m.toString();",
+            "        Runnable r = () -> { Inner inner = null; inner.run(); };",
+            "        java.util.function.Consumer<Value> c = value -> value.use();",
+            "    }",
+            "    { Block block = null; block.run(); }",
+            "}");
+        assertEquals(new HashSet<>(Arrays.asList("Param", "Local", "Runnable", "Inner",
+            "java.util.function.Consumer", "Value", "Block")), references);
+        for (String excluded : Arrays.asList("T", "M", "local", "param", "m", "inner", "value", "block")) {
+            assertFalse(excluded, references.contains(excluded));
+        }
+    }
+
+    private Set<String> collect(String... lines) {
+        CompilationUnit cu = parser.parse(String.join("\n", lines)).getResult()
+            .orElseThrow(() -> new AssertionError("fixture does not parse"));
+        String[] names = ReferenceCollector.collect(cu);
+        Set<String> references = new HashSet<>(Arrays.asList(names));
+        assertEquals("duplicates in " + Arrays.toString(names), names.length, references.size());
+        return references;
+    }
+}
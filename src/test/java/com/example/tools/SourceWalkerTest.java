@@ -0,0 +1,53 @@
+package com.example.tools;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SourceWalkerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @Test
+    public void findsMatchingFilesOutsideExcludedDirectories() throws IOException {
+        Path root = temp.getRoot().toPath();
+        for (String file : Arrays.asList("a/A.java", "a/b/B.java", "a/b/notes.txt", "target/classes/C.java",
+                "m/target/classes/D.java", "build/E.java", "m/build/F.java")) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(path, Collections.singletonList("class X {}"));
+        }
+        Set<String> found = new ConcurrentSkipListSet<>();
+        new SourceWalker(pool, Arrays.asList("target/classes", "/build"))
+            .walk(root, ".java", file -> found.add(root.relativize(file).toString().replace('\\', '/')));
+        assertEquals(new TreeSet<>(Arrays.asList("a/A.java", "a/b/B.java", "m/build/F.java")), found);
+    }
+
+    @Test
+    public void unreadableDirectoryFailsTheWalk() throws IOException {
+        Path missing = temp.getRoot().toPath().resolve("missing");
+        List<String> excludes = Collections.emptyList();
+        try {
+            new SourceWalker(pool, excludes).walk(missing, ".java", file -> { });
+            fail("walk over an unreadable directory succeeded");
+        } catch (IOException e) {
+            assertEquals(true, e.getMessage().startsWith("Could not read 1 directories under " + missing));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.tools;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compiles test fixtures with the running JDK's compiler
+final class TestCompiler {
+    private TestCompiler() {
+    }
+
+    static void compile(Path output, List<Path> classpath, Path... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Tests need a JDK, not a JRE");
+        }
+        Files.createDirectories(output);
+        List<String> args = new ArrayList<>(Arrays.asList("-g", "-proc:none", "-d", output.toString()));
+        if (!classpath.isEmpty()) {
+            List<String> entries = new ArrayList<>();
+            for (Path entry : classpath) {
+                entries.add(entry.toString());
+            }
+            args.add("-cp");
+            args.add(String.join(File.pathSeparator, entries));
+        }
+        for (Path source : sources) {
+            args.add(source.toString());
+        }
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        if (compiler.run(null, null, errors, args.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Fixture does not compile:\n" + errors);
+        }
+    }
+}